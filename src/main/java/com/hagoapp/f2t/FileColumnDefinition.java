@@ -6,9 +6,10 @@
 
 package com.hagoapp.f2t;
 
+import com.hagoapp.f2t.util.JDBCTypeMask;
 import java.math.BigDecimal;
 import java.sql.JDBCType;
-import java.util.HashSet;
+import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 import java.util.Set;
 
@@ -35,12 +36,12 @@ public class FileColumnDefinition extends ColumnDefinition {
 
     public FileColumnDefinition(String name, Set<JDBCType> possibleTypes) {
         super(name);
-        this.possibleTypes = possibleTypes;
+        this.possibleTypeMask = JDBCTypeMask.fromSet(possibleTypes);
     }
 
     public FileColumnDefinition(String name, Set<JDBCType> possibleTypes, JDBCType candidate0) {
         super(name, candidate0);
-        this.possibleTypes = possibleTypes;
+        this.possibleTypeMask = JDBCTypeMask.fromSet(possibleTypes);
     }
 
     public FileColumnDefinition(
@@ -48,7 +49,7 @@ public class FileColumnDefinition extends ColumnDefinition {
             JDBCType candidate0, BigDecimal minimum, BigDecimal maximum
     ) {
         super(name, candidate0);
-        this.possibleTypes = possibleTypes;
+        this.possibleTypeMask = JDBCTypeMask.fromSet(possibleTypes);
         this.minimum = minimum;
         this.maximum = maximum;
     }
@@ -58,17 +59,19 @@ public class FileColumnDefinition extends ColumnDefinition {
             JDBCType candidate0, BigDecimal minimum, BigDecimal maximum, boolean containsEmpty
     ) {
         super(name, candidate0);
-        this.possibleTypes = possibleTypes;
+        this.possibleTypeMask = JDBCTypeMask.fromSet(possibleTypes);
         this.minimum = minimum;
         this.maximum = maximum;
         this.containsEmpty = containsEmpty;
     }
 
-    private Set<JDBCType> possibleTypes = new HashSet<>();
+    private long possibleTypeMask = 0L;
     private int order;
     private BigDecimal minimum;
     private BigDecimal maximum;
     private boolean containsEmpty = false;
+    private transient DateTimeFormatter temporalFormatter;
+    private transient boolean temporalFormatterConsistent = true;
 
     /**
      * Get the 0 indexed order number of the column from file.
@@ -148,7 +151,7 @@ public class FileColumnDefinition extends ColumnDefinition {
      * @return all possible data types
      */
     public Set<JDBCType> getPossibleTypes() {
-        return possibleTypes;
+        return JDBCTypeMask.toSet(possibleTypeMask);
     }
 
     /**
@@ -157,13 +160,93 @@ public class FileColumnDefinition extends ColumnDefinition {
      * @param possibleTypes all possible data types
      */
     public void setPossibleTypes(Set<JDBCType> possibleTypes) {
-        this.possibleTypes = possibleTypes;
+        this.possibleTypeMask = JDBCTypeMask.fromSet(possibleTypes);
+    }
+
+    /**
+     * Get all possible data types of this file column as a mask of <code>JDBCTypeMask</code>.
+     *
+     * @return mask of possible data types
+     */
+    public long getPossibleTypeMask() {
+        return possibleTypeMask;
+    }
+
+    /**
+     * Set all possible data types of this file column as a mask of <code>JDBCTypeMask</code>.
+     *
+     * @param possibleTypeMask mask of possible data types
+     */
+    public void setPossibleTypeMask(long possibleTypeMask) {
+        this.possibleTypeMask = possibleTypeMask;
+    }
+
+    /**
+     * Narrow possible data types of this file column with types of another value, see
+     * <code>JDBCTypeMask.combine</code>.
+     *
+     * @param mask mask of possible data types of a value
+     */
+    public void combinePossibleTypeMask(long mask) {
+        this.possibleTypeMask = JDBCTypeMask.combine(this.possibleTypeMask, mask);
+    }
+
+    /**
+     * Get the formatter that parsed all date / time values of this column during type inference. Null is
+     * returned if no such value was seen or values were parsed by different formatters.
+     *
+     * @return pinned formatter or null
+     */
+    public DateTimeFormatter getTemporalFormatter() {
+        return temporalFormatter;
+    }
+
+    /**
+     * Set the formatter to parse date / time values of this column with.
+     *
+     * @param temporalFormatter pinned formatter
+     */
+    public void setTemporalFormatter(DateTimeFormatter temporalFormatter) {
+        this.temporalFormatter = temporalFormatter;
+        this.temporalFormatterConsistent = true;
+    }
+
+    /**
+     * Record the formatter that parsed a date / time value of this column. The formatter is pinned only while
+     * every value is parsed by the same one, a second different formatter unpins it for good.
+     *
+     * @param formatter formatter that parsed a value
+     */
+    public void learnTemporalFormatter(DateTimeFormatter formatter) {
+        if (!temporalFormatterConsistent || (formatter == null)) {
+            return;
+        }
+        if (temporalFormatter == null) {
+            temporalFormatter = formatter;
+        } else if (temporalFormatter != formatter) {
+            temporalFormatter = null;
+            temporalFormatterConsistent = false;
+        }
+    }
+
+    /**
+     * Merge the formatter learned by another definition of the same column, e.g. from another chunk of file.
+     *
+     * @param other definition of the same column
+     */
+    public void learnTemporalFormatter(FileColumnDefinition other) {
+        if (!other.temporalFormatterConsistent) {
+            temporalFormatter = null;
+            temporalFormatterConsistent = false;
+        } else {
+            learnTemporalFormatter(other.temporalFormatter);
+        }
     }
 
     @Override
     public String toString() {
         return "FileColumnDefinition{" +
-                "possibleTypes=" + possibleTypes +
+                "possibleTypes=" + getPossibleTypes() +
                 ", order=" + order +
                 ", minimum=" + minimum +
                 ", maximum=" + maximum +
@@ -182,8 +265,7 @@ public class FileColumnDefinition extends ColumnDefinition {
 
         if (order != that.order) return false;
         if (containsEmpty != that.containsEmpty) return false;
-        if (!Objects.equals(possibleTypes, that.possibleTypes))
-            return false;
+        if (possibleTypeMask != that.possibleTypeMask) return false;
         if (!Objects.equals(minimum, that.minimum)) return false;
         return Objects.equals(maximum, that.maximum);
     }
@@ -191,7 +273,7 @@ public class FileColumnDefinition extends ColumnDefinition {
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + (possibleTypes != null ? possibleTypes.hashCode() : 0);
+        result = 31 * result + Long.hashCode(possibleTypeMask);
         result = 31 * result + order;
         result = 31 * result + (minimum != null ? minimum.hashCode() : 0);
         result = 31 * result + (maximum != null ? maximum.hashCode() : 0);
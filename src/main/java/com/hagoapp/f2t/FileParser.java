@@ -36,6 +36,7 @@ public class FileParser {
     }
 
     private final FileInfo fileInfo;
+    private final Reader reader;
     private final List<ParseObserver> observers = new ArrayList<>();
     private long rowCountToInferType = -1;
     private final Logger logger = LoggerFactory.getLogger(FileParser.class);
@@ -94,6 +95,19 @@ public class FileParser {
      * @throws IOException if file not exists or error occurs while reading
      */
     public FileParser(FileInfo fileInfo) throws IOException {
+        this(fileInfo, null);
+    }
+
+    /**
+     * The constructor using a given reader instead of the one registered for file type, e.g. a reader sharing an
+     * opened workbook with others. The reader is closed after parsing, so it can be parsed only once.
+     *
+     * @param fileInfo file information
+     * @param reader   reader to use, null to create by file type
+     * @throws IOException if file not exists or error occurs while reading
+     */
+    public FileParser(FileInfo fileInfo, Reader reader) throws IOException {
+        this.reader = reader;
         if (fileInfo == null) {
             throw new IOException("null file");
         }
@@ -129,7 +143,7 @@ public class FileParser {
      */
     public void parse(FileParserOption option) {
         var result = new ParseResult();
-        try (var reader = ReaderFactory.Companion.getReader(fileInfo)) {
+        try (var reader = this.reader != null ? this.reader : ReaderFactory.Companion.getReader(fileInfo)) {
             reader.setupTypeDeterminer(determiner);
             if (!option.isInferColumnTypes()) {
                 reader.skipTypeInfer();
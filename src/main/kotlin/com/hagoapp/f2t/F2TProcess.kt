@@ -74,6 +74,7 @@ class F2TProcess(dataFileParser: FileParser, conn: Connection, private val f2TCo
     override fun onRowRead(row: DataRow) {
         try {
             writer.writeRow(row)
+            result.rowCount++
         } catch (e: Exception) {
             result.errors.add(e)
         }
@@ -0,0 +1,141 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t
+
+import com.hagoapp.f2t.datafile.ParseResult
+import com.hagoapp.f2t.datafile.Reader
+import com.hagoapp.f2t.datafile.excel.*
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.sql.Connection
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.function.Supplier
+import kotlin.math.min
+
+/**
+ * This class imports several sheets of an Excel file, each into its own table, concurrently. The workbook is
+ * opened once and shared by all sheets, xls sheets are streamed from forks of workbook sharing its globals. Each
+ * worker uses one database connection for all sheets it processes. Every sheet is imported the same way as
+ * <code>F2TProcess</code> does.
+ *
+ * @param fileInfo  Excel file information, its sheet selection is ignored
+ * @param sheetConfigs  process configs keyed by name of sheet to import
+ * @param connectionSupplier    supplier of database connections, called once per worker
+ * @param workerCount   count of sheets imported concurrently
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class MultiSheetF2TProcess @JvmOverloads constructor(
+    private val fileInfo: FileInfoExcel,
+    private val sheetConfigs: Map<String, F2TConfig>,
+    private val connectionSupplier: Supplier<Connection>,
+    private val workerCount: Int = Runtime.getRuntime().availableProcessors()
+) {
+    private val logger = LoggerFactory.getLogger(MultiSheetF2TProcess::class.java)
+    private val results = ConcurrentHashMap<String, F2TResult>()
+    @Volatile
+    private var connectionError: Throwable? = null
+
+    /**
+     * Execution result of this process, available after <code>run</code>.
+     */
+    lateinit var result: MultiSheetF2TResult
+        private set
+
+    init {
+        if (workerCount <= 0) {
+            throw F2TException("worker count must be positive")
+        }
+    }
+
+    /**
+     * start process.
+     */
+    fun run() {
+        val workbook: Closeable
+        val sheetNames: List<String>
+        val createReader: () -> Reader
+        if (fileInfo is FileInfoExcelX) {
+            val wb = XlsxWorkbook(fileInfo.filename!!)
+            workbook = wb
+            sheetNames = wb.sheets.map { it.name }
+            createReader = { XlsxDataFileReader(wb) }
+        } else {
+            val wb = XlsWorkbook(fileInfo.filename!!)
+            workbook = wb
+            sheetNames = wb.sheets.map { it.name }
+            createReader = { XlsDataFileReader(wb) }
+        }
+        workbook.use {
+            val queue = ConcurrentLinkedQueue<String>()
+            sheetConfigs.keys.forEach { sheet ->
+                if (sheet in sheetNames) {
+                    queue.add(sheet)
+                } else {
+                    results[sheet] = failedResult(F2TException("sheet $sheet not found in ${fileInfo.filename}"))
+                }
+            }
+            val workers = min(workerCount, queue.size)
+            if (workers > 0) {
+                val executor = Executors.newFixedThreadPool(workers)
+                try {
+                    val futures = (0 until workers).map { executor.submit { work(queue, createReader) } }
+                    futures.forEach { it.get() }
+                } finally {
+                    executor.shutdown()
+                }
+            }
+            // sheets left when no worker could connect to database
+            generateSequence { queue.poll() }.forEach { sheet ->
+                results[sheet] = failedResult(connectionError ?: F2TException("sheet $sheet not processed"))
+            }
+        }
+        result = MultiSheetF2TResult(sheetConfigs.keys.associateWith { results.getValue(it) })
+    }
+
+    private fun work(queue: ConcurrentLinkedQueue<String>, createReader: () -> Reader) {
+        val connection = try {
+            connectionSupplier.get()
+        } catch (e: Throwable) {
+            logger.error("creating connection failed: {}", e.message)
+            connectionError = e
+            return
+        }
+        connection.use { con ->
+            while (true) {
+                val sheet = queue.poll() ?: break
+                results[sheet] = try {
+                    importSheet(sheet, con, createReader())
+                } catch (e: Throwable) {
+                    logger.error("importing sheet {} failed: {}", sheet, e.message)
+                    failedResult(e)
+                }
+            }
+        }
+    }
+
+    private fun importSheet(sheet: String, connection: Connection, reader: Reader): F2TResult {
+        val info = if (fileInfo is FileInfoExcelX) FileInfoExcelX() else FileInfoExcel()
+        info.filename = fileInfo.filename
+        info.sheetName = sheet
+        val process = F2TProcess(FileParser(info, reader), connection, sheetConfigs.getValue(sheet))
+        process.run()
+        return process.result
+    }
+
+    private fun failedResult(e: Throwable): F2TResult {
+        val parseResult = ParseResult()
+        parseResult.addError(-1, e)
+        parseResult.end()
+        val ret = F2TResult()
+        ret.errors.add(e)
+        ret.complete(parseResult)
+        return ret
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t
+
+/**
+ * Execution result of a multi-sheet import, rolled up from results of each sheet.
+ *
+ * @property results    results of sheets keyed by sheet name, in the order sheets are configured
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class MultiSheetF2TResult(val results: Map<String, F2TResult>) {
+
+    /**
+     * Row count processed of all sheets.
+     */
+    val rowCount: Int
+        get() = results.values.sumOf { it.rowCount }
+
+    /**
+     * Errors occurred during processing of all sheets.
+     */
+    val errors: List<Throwable>
+        get() = results.values.flatMap { it.errors }
+
+    /**
+     * Get the success status of this result.
+     *
+     * @return true if all sheets completed successfully, otherwise false
+     */
+    fun succeeded(): Boolean {
+        return results.values.all { it.succeeded() }
+    }
+
+    override fun toString(): String {
+        return "MultiSheetF2TResult(results=$results)"
+    }
+}
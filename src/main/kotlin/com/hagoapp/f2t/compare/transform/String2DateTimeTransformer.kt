@@ -31,7 +31,7 @@ class String2DateTimeTransformer : TypedColumnTransformer {
         if (src !is String?) {
             throw F2TException("Not String input to transform to datetime: ${src::class.java.canonicalName}")
         }
-        return DateTimeTypeUtils.stringToDateTimeOrNull(src, extra.toSet())
+        return DateTimeTypeUtils.stringToDateTimeOrNull(src, fileColumnDefinition.temporalFormatter, extra.toSet())
     }
 
     override fun supportSourceTypes(): Set<JDBCType> {
@@ -0,0 +1,319 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile
+
+import com.hagoapp.f2t.FileColumnDefinition
+import com.hagoapp.f2t.util.BooleanTypeUtils
+import com.hagoapp.f2t.util.DateTimeTypeUtils
+import com.hagoapp.f2t.util.JDBCTypeMask
+import com.hagoapp.f2t.util.JDBCTypeUtils
+import java.math.BigDecimal
+import java.sql.JDBCType.*
+import java.time.LocalDate
+import java.time.LocalTime
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.time.temporal.Temporal
+import kotlin.math.absoluteValue
+import kotlin.math.max
+
+/**
+ * Classifier of text cells for type inference. A cell is scanned once to find its shape(ASCII or not, numeric
+ * literal or not, integral or not), then only the parsing its shape allows is done, and candidate types, length,
+ * precision / scale, numeric value and temporal value are produced together. Results are the same as running
+ * <code>JDBCTypeUtils.guessTypes</code>, <code>DateTimeTypeUtils.parseTemporal</code>,
+ * <code>NumericUtils.detectPrecision</code> and <code>EncodingUtils.isAsciiText</code> one by one.
+ *
+ * An instance keeps the result of the last classified cell, so it is not thread safe. Use one instance per thread.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class CellClassifier {
+
+    companion object {
+        private const val MAX_BOOLEAN_LENGTH = 5
+        private const val MAX_EXACT_LONG_DIGITS = 18
+        private val LONG_MAX = Long.MAX_VALUE.toBigDecimal()
+        private val LONG_MIN = Long.MIN_VALUE.toBigDecimal()
+        private val DOUBLE_MAX = Double.MAX_VALUE.toBigDecimal()
+        private val DOUBLE_MIN = Double.MIN_VALUE.toBigDecimal()
+        private val TEXT_TYPES = JDBCTypeMask.of(NCLOB, NVARCHAR, NCHAR)
+        private val ASCII_TEXT_TYPES = JDBCTypeMask.of(CLOB, VARCHAR, CHAR)
+
+        private const val S_START = 0
+        private const val S_SIGN = 1
+        private const val S_INT = 2
+        private const val S_DOT = 3
+        private const val S_FRACTION = 4
+        private const val S_EXP = 5
+        private const val S_EXP_SIGN = 6
+        private const val S_EXP_DIGITS = 7
+        private const val S_INVALID = -1
+    }
+
+    /**
+     * Mask of candidate types, see <code>JDBCTypeMask</code>. 0 for blank cells.
+     */
+    var typeMask = 0L
+        private set
+
+    /**
+     * Length of cell, or length of its temporal value in default format if that is longer.
+     */
+    var length = 0
+        private set
+
+    /**
+     * Count of integral digits, 0 if cell is not numeric.
+     */
+    var precision = 0
+        private set
+
+    /**
+     * Count of fraction digits, 0 if cell is not numeric.
+     */
+    var scale = 0
+        private set
+
+    /**
+     * Numeric value of cell, null if cell is not numeric.
+     */
+    var number: BigDecimal? = null
+        private set
+
+    /**
+     * Whether the cell contains ASCII characters only.
+     */
+    var isAscii = true
+        private set
+
+    /**
+     * Temporal value of cell, null if cell is not a date / time.
+     */
+    var temporal: Temporal? = null
+        private set
+
+    /**
+     * Formatter that parsed the temporal value.
+     */
+    var temporalFormatter: DateTimeFormatter? = null
+        private set
+
+    /**
+     * Whether the cell is empty.
+     */
+    var isEmpty = true
+        private set
+
+    /**
+     * Classify a cell.
+     *
+     * @param cell  text of cell
+     * @return this classifier, with results of the cell
+     */
+    fun classify(cell: String): CellClassifier {
+        reset(cell)
+        var state = S_START
+        var hasDot = false
+        var significantDigits = 0
+        var exact = 0L
+        var digits = 0
+        var nonBlank = 0
+        for (c in cell) {
+            if (c.code >= 0x80) {
+                isAscii = false
+            }
+            if (!c.isWhitespace()) {
+                nonBlank++
+            }
+            val isDigit = (c >= '0') && (c <= '9')
+            if (isDigit) {
+                digits++
+            }
+            state = when (state) {
+                S_START -> when {
+                    isDigit -> S_INT
+                    (c == '+') || (c == '-') -> S_SIGN
+                    c == '.' -> S_DOT
+                    else -> S_INVALID
+                }
+
+                S_SIGN -> when {
+                    isDigit -> S_INT
+                    c == '.' -> S_DOT
+                    else -> S_INVALID
+                }
+
+                S_INT -> when {
+                    isDigit -> S_INT
+                    c == '.' -> S_FRACTION
+                    (c == 'e') || (c == 'E') -> S_EXP
+                    else -> S_INVALID
+                }
+
+                S_DOT -> if (isDigit) S_FRACTION else S_INVALID
+                S_FRACTION -> when {
+                    isDigit -> S_FRACTION
+                    (c == 'e') || (c == 'E') -> S_EXP
+                    else -> S_INVALID
+                }
+
+                S_EXP -> when {
+                    isDigit -> S_EXP_DIGITS
+                    (c == '+') || (c == '-') -> S_EXP_SIGN
+                    else -> S_INVALID
+                }
+
+                S_EXP_SIGN, S_EXP_DIGITS -> if (isDigit) S_EXP_DIGITS else S_INVALID
+                else -> S_INVALID
+            }
+            if (state == S_INVALID) {
+                // numeric shape is excluded, only characters are checked for the rest
+                continue
+            }
+            if (c == '.') {
+                hasDot = true
+            }
+            if (isDigit && (state == S_INT) && ((significantDigits > 0) || (c != '0'))) {
+                significantDigits++
+                if (significantDigits <= MAX_EXACT_LONG_DIGITS) {
+                    exact = exact * 10 + (c - '0')
+                }
+            }
+        }
+        if (nonBlank == 0) {
+            return this
+        }
+        var mask = TEXT_TYPES
+        if (isAscii) {
+            mask = mask or ASCII_TEXT_TYPES
+        }
+        if ((state == S_INT) || (state == S_FRACTION) || (state == S_EXP_DIGITS)) {
+            mask = mask or classifyNumber(cell, state == S_INT, significantDigits, exact, hasDot)
+        }
+        if ((nonBlank <= MAX_BOOLEAN_LENGTH) && BooleanTypeUtils.isPossibleBooleanValue(cell)) {
+            mask = mask or JDBCTypeMask.of(BOOLEAN)
+        }
+        if (digits > 0) {
+            mask = mask or classifyTemporal(cell)
+        }
+        typeMask = mask
+        return this
+    }
+
+    /**
+     * Apply the result of last classified cell to the definition of its column.
+     *
+     * @param column    column definition
+     */
+    fun update(column: FileColumnDefinition) {
+        if (typeMask != 0L) {
+            column.combinePossibleTypeMask(typeMask)
+        }
+        val modifier = column.typeModifier
+        modifier.maxLength = max(modifier.maxLength, length)
+        modifier.precision = max(modifier.precision, precision)
+        modifier.scale = max(modifier.scale, scale)
+        val num = number
+        if (num != null) {
+            if ((column.maximum == null) || (column.maximum < num)) {
+                column.maximum = num
+            }
+            if ((column.minimum == null) || (column.minimum > num)) {
+                column.minimum = num
+            }
+        }
+        if (!isAscii) {
+            modifier.isContainsNonAscii = true
+        }
+        if (isEmpty) {
+            modifier.isNullable = true
+            column.isContainsEmpty = true
+        }
+        column.learnTemporalFormatter(temporalFormatter)
+    }
+
+    private fun reset(cell: String) {
+        typeMask = 0L
+        length = cell.length
+        precision = 0
+        scale = 0
+        number = null
+        isAscii = true
+        temporal = null
+        temporalFormatter = null
+        isEmpty = cell.isEmpty()
+    }
+
+    private fun classifyNumber(cell: String, integral: Boolean, significantDigits: Int, exact: Long, hasDot: Boolean): Long {
+        val num = try {
+            BigDecimal(cell)
+        } catch (e: NumberFormatException) {
+            // exponent out of range
+            return 0L
+        }
+        number = num
+        var mask = JDBCTypeMask.of(DECIMAL)
+        if (integral) {
+            val l = when {
+                significantDigits <= MAX_EXACT_LONG_DIGITS -> if (cell[0] == '-') -exact else exact
+                (num <= LONG_MAX) && (num >= LONG_MIN) -> num.toLong()
+                else -> null
+            }
+            if (l != null) {
+                mask = mask or JDBCTypeUtils.intTypeMask(l)
+            }
+        }
+        val d = num.toDouble()
+        if ((num <= DOUBLE_MAX) && (num >= DOUBLE_MIN)) {
+            mask = mask or JDBCTypeUtils.floatTypeMask(d)
+        }
+        // same as NumericUtils.detectPrecision, from the double value parsed already
+        val ds = d.absoluteValue.toString()
+        val dot = ds.indexOf('.')
+        if (dot < 0) {
+            precision = ds.length
+        } else {
+            precision = dot
+            scale = if (hasDot) ds.length - dot - 1 else 0
+        }
+        return mask
+    }
+
+    private fun classifyTemporal(cell: String): Long {
+        var mask = 0L
+        val dt = DateTimeTypeUtils.findDateTime(cell, emptySet())
+        if (dt != null) {
+            mask = mask or JDBCTypeMask.of(TIMESTAMP_WITH_TIMEZONE)
+        }
+        val d = DateTimeTypeUtils.findDate(cell, emptySet())
+        if (d != null) {
+            mask = mask or JDBCTypeMask.of(DATE)
+        }
+        val t = DateTimeTypeUtils.findTime(cell, emptySet())
+        if (t != null) {
+            mask = mask or JDBCTypeMask.of(TIME)
+        }
+        val found = dt ?: d ?: t
+        if (found != null) {
+            temporal = found.first
+            temporalFormatter = found.second
+            length = max(length, formatTemporal(found.first).length)
+        }
+        return mask
+    }
+
+    private fun formatTemporal(value: Temporal): String {
+        return when (value) {
+            is ZonedDateTime -> value.format(DateTimeTypeUtils.getDefaultDateTimeFormatter())
+            is LocalDate -> value.format(DateTimeTypeUtils.getDefaultDateFormatter())
+            is LocalTime -> value.format(DateTimeTypeUtils.getDefaultTimeFormatter())
+            else -> value.toString()
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.reflections.Reflections
 import org.reflections.scanners.Scanners
 import org.slf4j.LoggerFactory
 import java.lang.reflect.Constructor
+import java.lang.reflect.Modifier
 
 /**
  * This is a factory class to create data file readers. It will search any descendants of <code>Reader</code>
@@ -38,6 +39,9 @@ class ReaderFactory {
             for (packageName in packageNames) {
                 val r = Reflections(packageName, Scanners.SubTypes)
                 r.getSubTypesOf(Reader::class.java).forEach { clz ->
+                    if (Modifier.isAbstract(clz.modifiers)) {
+                        return@forEach
+                    }
                     val constructor = clz.getConstructor()
                     val template = constructor.newInstance()
                     template.getSupportedFileType().forEach { fileType ->
@@ -8,26 +8,30 @@ package com.hagoapp.f2t.datafile.csv
 
 import com.hagoapp.f2t.*
 import com.hagoapp.f2t.datafile.*
-import com.hagoapp.f2t.util.DateTimeTypeUtils
 import com.hagoapp.f2t.util.JDBCTypeUtils
+import com.hagoapp.util.DetectedEncoding
 import com.hagoapp.util.EncodingUtils
-import com.hagoapp.util.NumericUtils
 import org.apache.commons.csv.CSVFormat
 import org.apache.commons.csv.CSVParser
 import org.mozilla.universalchardet.UnicodeBOMInputStream
 import org.slf4j.LoggerFactory
+import java.io.Closeable
 import java.io.FileInputStream
 import java.io.InputStream
 import java.nio.charset.Charset
-import java.nio.charset.StandardCharsets
 import java.sql.JDBCType
-import java.time.LocalDate
-import java.time.LocalTime
-import java.time.ZonedDateTime
-import java.time.temporal.Temporal
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.random.Random
 
 /**
- * Reader implementation using Apache Common CSV.
+ * Reader implementation using Apache Common CSV. Records are not kept in memory, column types are inferred from
+ * a sample of the file, and the file is read again lazily while iterating rows.
+ *
+ * The whole file is validated when opened only if the head of file fits several formats, because a full scan is
+ * needed to choose among them. When one format is sniffed, or <code>strictFormat</code> is set, only the header is
+ * read when opened, and records having a different count of fields than header are reported as row errors by
+ * <code>next</code> instead of failing <code>open</code>.
  *
  * @author Chaojun Sun
  * @since 0.1
@@ -53,9 +57,12 @@ class CSVDataReader : Reader {
     private var loaded = false
     private lateinit var format: CSVFormat
     private var currentRow = 0
-    private val data = mutableListOf<List<String>>()
+    private lateinit var charset: Charset
+    private var dataSource: Closeable? = null
+    private var dataIterator: Iterator<List<String>>? = null
     private lateinit var columns: Map<Int, FileColumnDefinition>
     private var rowCount = -1
+    private var inferredSampleCount: Long? = null
     private val logger = LoggerFactory.getLogger(CSVDataReader::class.java)
     private var defaultDeterminer = FileTypeDeterminer(FileColumnTypeDeterminer.LeastTypeDeterminer)
     private var skipTypeInfer = false
@@ -85,39 +92,55 @@ class CSVDataReader : Reader {
 
     override fun open(fileInfo: FileInfo) {
         this.fileInfo = fileInfo as FileInfoCsv
-        prepare(this.fileInfo)
-        val charset = charsetForFile(fileInfo)
-        for (i in formats.indices) {
-            FileInputStream(fileInfo.filename!!).use { raw ->
-                UnicodeBOMInputStream(raw, true).use { fi ->
-                    try {
-                        val fmt = formats[i]
-                        parseCSV(fi, charset, fmt)
-                        this.format = fmt
-                        this.loaded = true
-                        currentRow = 0
-                        logger.debug("parsing csv: ${fileInfo.filename} using ${PREDEFINED_FORMAT_NAMES[i]} successfully")
-                    } catch (ex: Exception) {
-                        logger.error("parsing csv: ${fileInfo.filename} using ${PREDEFINED_FORMAT_NAMES[i]} failed: $ex, try next format")
+        closeDataSource()
+        FileInputStream(fileInfo.filename!!).use { fis ->
+            val head = EncodingUtils.detectEncoding(fis, CSVDialectSniffer.DEFAULT_SAMPLE_SIZE)
+            charset = charsetForFile(fileInfo, head)
+            val sniffer = CSVDialectSniffer(head.prefixText(charset), head.isComplete)
+            prepare(this.fileInfo, sniffer)
+            val candidates = sniffer.findCandidateFormats(formats)
+            val tries = if (fileInfo.strictFormat) candidates.take(1) else candidates
+            for (i in tries) {
+                try {
+                    val fmt = formats[i]
+                    if (tries.size > 1) {
+                        // the head of file is ambiguous, only a full scan can tell which format is right
+                        validateCSV(fmt)
+                        readHeader(fmt)
+                    } else {
+                        // header is parsed from the head already read, then the rest of stream if needed, records
+                        // are not validated here but by next
+                        readHeader(fmt, head.replay(fis))
                     }
+                    this.format = fmt
+                    this.loaded = true
+                    currentRow = 0
+                    logger.debug("parsing csv: ${fileInfo.filename} using ${PREDEFINED_FORMAT_NAMES[i]} successfully")
+                } catch (ex: Exception) {
+                    logger.error("parsing csv: ${fileInfo.filename} using ${PREDEFINED_FORMAT_NAMES[i]} failed: $ex, try next format")
                 }
+                if (this.loaded) break
             }
-            if (this.loaded) break
         }
         if (!this.loaded) {
             throw F2TException("File parsing for ${fileInfo.filename} failed")
         }
+        if (skipTypeInfer) {
+            columns.values.forEach { column ->
+                column.possibleTypes = setOf(JDBCType.NCHAR, JDBCType.NVARCHAR, JDBCType.NCLOB)
+                column.dataType = defaultDeterminer.determineType(column)
+            }
+        }
     }
 
     override fun getRowCount(): Int? {
         return if (rowCount < 0) null else rowCount
     }
 
-    private fun charsetForFile(fileInfo: FileInfoCsv): Charset {
+    private fun charsetForFile(fileInfo: FileInfoCsv, head: DetectedEncoding): Charset {
         val enc = when {
             fileInfo.encoding != null -> Charset.forName(fileInfo.encoding)
-            fileInfo.filename == null -> StandardCharsets.UTF_8
-            else -> Charset.forName(EncodingUtils.guessEncoding(fileInfo.filename!!))
+            else -> Charset.forName(head.encoding)
         }
         logger.debug("file encoding is {}", enc)
         return enc
@@ -136,6 +159,10 @@ class CSVDataReader : Reader {
 
     override fun inferColumnTypes(sampleRowCount: Long): List<FileColumnDefinition> {
         checkLoad()
+        if (!skipTypeInfer && (inferredSampleCount != sampleRowCount)) {
+            inferTypes(sampleRowCount)
+            inferredSampleCount = sampleRowCount
+        }
         return columns.values.toList().sortedBy { it.name }
     }
 
@@ -144,114 +171,256 @@ class CSVDataReader : Reader {
     }
 
     override fun close() {
-        data.clear()
+        closeDataSource()
     }
 
     override fun hasNext(): Boolean {
-        return currentRow < data.size
+        checkLoad()
+        return openDataSource().hasNext()
     }
 
     override fun next(): DataRow {
         if (!hasNext()) {
             throw F2TException("No more line")
         }
+        if (!skipTypeInfer && (inferredSampleCount == null)) {
+            inferColumnTypes()
+        }
+        val record = dataIterator!!.next()
+        if (record.size != columns.size) {
+            currentRow++
+            throw F2TException("format error found in line ${currentRow - 1} of ${fileInfo.filename}")
+        }
         val row = DataRow(
             currentRow.toLong(),
-            data[currentRow].mapIndexed { i, cell ->
-                DataCell(JDBCTypeUtils.toTypedValue(cell, columns.getValue(i).dataType!!), i)
+            record.mapIndexed { i, item ->
+                val column = columns.getValue(i)
+                DataCell(JDBCTypeUtils.toTypedValue(item.trim(), column.dataType!!, column.temporalFormatter), i)
             }
         )
         currentRow++
         return row
     }
 
-    private fun prepare(fileInfo: FileInfoCsv) {
+    private fun openDataSource(): Iterator<List<String>> {
+        val iterator = dataIterator
+        if (iterator != null) {
+            return iterator
+        }
+        val source = openRecordSource()
+        dataSource = source.first
+        return source.second.also { dataIterator = it }
+    }
+
+    private fun closeDataSource() {
+        try {
+            dataSource?.close()
+        } catch (e: Exception) {
+            logger.error("close csv data source of {} failed: {}", fileInfo.filename, e.message)
+        }
+        dataSource = null
+        dataIterator = null
+    }
+
+    /**
+     * Open records of file, header excluded, using memory mapped tokenizer if required and possible, or Apache
+     * Common CSV parser. Parallel parsing is used only when allowed, since it parses chunks ahead of the consumer.
+     */
+    private fun openRecordSource(allowParallel: Boolean = true): Pair<Closeable, Iterator<List<String>>> {
+        if (allowParallel && isParallel()) {
+            val parser = createChunkedParser()
+            return Pair(parser, parser.records())
+        }
+        if (fileInfo.memoryMapped && MappedCSVTokenizer.isSupported(charset, format)) {
+            val tokenizer = MappedCSVTokenizer(
+                fileInfo.filename!!, charset, format.delimiterString[0], format.quoteCharacter
+            )
+            if (tokenizer.hasNext()) {
+                tokenizer.next()
+            }
+            return Pair(tokenizer, tokenizer)
+        }
+        if (fileInfo.memoryMapped) {
+            logger.warn("memory mapped reading not supported for {} in {}", fileInfo.filename, charset)
+        }
+        val raw = FileInputStream(fileInfo.filename!!)
+        try {
+            val parser = CSVParser.parse(UnicodeBOMInputStream(raw, true), charset, format)
+            return Pair(parser, parser.asSequence().map { it.toList() }.iterator())
+        } catch (ex: Exception) {
+            raw.close()
+            throw ex
+        }
+    }
+
+    private fun isParallel(): Boolean {
+        return (fileInfo.parallelism > 1) && MappedCSVTokenizer.isSupported(charset, format)
+    }
+
+    private fun createChunkedParser(): ChunkedCSVParser {
+        return ChunkedCSVParser(
+            fileInfo.filename!!, charset, format.delimiterString[0], format.quoteCharacter, fileInfo.parallelism
+        )
+    }
+
+    private fun <T> readRecords(allowParallel: Boolean, action: (Iterator<List<String>>) -> T): T {
+        val source = openRecordSource(allowParallel)
+        source.first.use {
+            return action(source.second)
+        }
+    }
+
+    private fun prepare(fileInfo: FileInfoCsv, sniffer: CSVDialectSniffer) {
+        val delimiter = if (fileInfo.detectDialect) sniffer.detectDelimiter(fileInfo.delimiter) else fileInfo.delimiter
+        val quote = if (fileInfo.detectDialect) sniffer.detectQuote(delimiter, fileInfo.quote) else fileInfo.quote
         this.formats = predefinedFormats.map { fmt ->
             CSVFormat.Builder.create(fmt).setHeader().setSkipHeaderRecord(true)
-                .setDelimiter(fileInfo.delimiter).setQuote(fileInfo.quote).build()
+                .setDelimiter(delimiter).setQuote(quote).build()
         }
     }
 
-    private fun parseCSV(ist: InputStream, charset: Charset, format: CSVFormat) {
-        CSVParser.parse(ist, charset, format).use { parser ->
-            columns = parser.headerMap.entries.associate { Pair(it.value, FileColumnDefinition(it.key, it.value)) }
-            if (skipTypeInfer) {
-                columns.values.forEach { it.possibleTypes = setOf(JDBCType.NCHAR, JDBCType.NVARCHAR, JDBCType.NCLOB) }
+    private fun <T> parseCSV(format: CSVFormat, action: (CSVParser) -> T): T {
+        FileInputStream(fileInfo.filename!!).use { raw ->
+            UnicodeBOMInputStream(raw, true).use { fi ->
+                CSVParser.parse(fi, charset, format).use { parser ->
+                    return action(parser)
+                }
             }
-            rowCount = 0
+        }
+    }
+
+    private fun readHeader(format: CSVFormat, input: InputStream? = null) {
+        val action = { parser: CSVParser ->
+            columns = parser.headerMap.entries.associate { Pair(it.value, FileColumnDefinition(it.key, it.value)) }
+        }
+        if (input != null) {
+            CSVParser.parse(input, charset, format).use(action)
+        } else {
+            parseCSV(format, action)
+        }
+        inferredSampleCount = null
+    }
+
+    private fun validateCSV(format: CSVFormat) {
+        rowCount = parseCSV(format) { parser ->
+            val columnCount = parser.headerMap.size
+            var count = 0
             parser.forEachIndexed { i, record ->
-                if (record.size() != columns.size) {
+                if (record.size() != columnCount) {
                     throw F2TException("format error found in line $i of ${fileInfo.filename}")
                 }
-                val row = mutableListOf<String>()
-                record.forEachIndexed { j, item ->
-                    val cell = item.trim()
-                    row.add(cell)
-                    if (!skipTypeInfer) {
-                        setupColumnDefinition(columns.getValue(j), cell)
-                    }
-                }
-                data.add(row)
-                rowCount++
-            }
-            columns.values.forEach { column ->
-                //column.dataType = JDBCTypeUtils.guessMostAccurateType(column.possibleTypes.toList())
-                column.dataType = defaultDeterminer.determineType(column)
+                count++
             }
-            logger.debug("inferred: {}", columns.values.associate { Pair(it.name, it.dataType) })
+            count
         }
     }
 
-    private fun setupColumnDefinition(columnDefinition: FileColumnDefinition, cell: String) {
-        val possibleTypes = if (cell.isNotBlank()) JDBCTypeUtils.guessTypes(cell).toSet() else emptySet()
-        val existTypes = columnDefinition.possibleTypes
-        columnDefinition.possibleTypes = JDBCTypeUtils.combinePossibleTypes(existTypes, possibleTypes)
-        val typeModifier = columnDefinition.typeModifier
-        if (cell.length > typeModifier.maxLength) {
-            typeModifier.maxLength = cell.length
+    private fun inferTypes(sampleRowCount: Long) {
+        readHeader(format)
+        if ((sampleRowCount <= 0) && isParallel()) {
+            inferTypesInParallel()
+        } else {
+            inferTypesSequentially(sampleRowCount)
         }
-        val dt = formatDateTime(DateTimeTypeUtils.stringToTemporalOrNull(cell))
-        if ((dt != null) && (dt.length > typeModifier.maxLength)) {
-            typeModifier.maxLength = dt.length
+        columns.values.forEach { column ->
+            //column.dataType = JDBCTypeUtils.guessMostAccurateType(column.possibleTypes.toList())
+            column.dataType = defaultDeterminer.determineType(column)
         }
-        val p = NumericUtils.detectPrecision(cell)
-        if (p.first > typeModifier.precision) {
-            typeModifier.precision = p.first
-        }
-        if (p.second > typeModifier.scale) {
-            typeModifier.scale = p.second
+        logger.debug("inferred: {}", columns.values.associate { Pair(it.name, it.dataType) })
+    }
+
+    /**
+     * Every chunk collects column statistics of its own, and they are merged after all chunks are done.
+     */
+    private fun inferTypesInParallel() {
+        val results = createChunkedParser().use { parser ->
+            parser.mapChunks { chunkIndex, tokenizer ->
+                val chunkColumns = columns.mapValues { (i, column) -> FileColumnDefinition(column.name, i) }
+                val classifier = CellClassifier()
+                var count = 0
+                while (tokenizer.nextRecord()) {
+                    if (tokenizer.fieldCount != chunkColumns.size) {
+                        throw F2TException("format error found in line $count of chunk $chunkIndex of ${fileInfo.filename}")
+                    }
+                    for (j in 0 until tokenizer.fieldCount) {
+                        classifier.classify(tokenizer.field(j).trim()).update(chunkColumns.getValue(j))
+                    }
+                    count++
+                }
+                Pair(chunkColumns, count)
+            }
         }
-        setRange(columnDefinition, cell)
-        if (!typeModifier.isContainsNonAscii && !EncodingUtils.isAsciiText(cell)) {
-            typeModifier.isContainsNonAscii = true
+        results.forEach { (chunkColumns, _) ->
+            chunkColumns.forEach { (i, column) -> mergeColumnDefinition(columns.getValue(i), column) }
         }
-        if (!typeModifier.isNullable && cell.isEmpty()) {
-            typeModifier.isNullable = true
+        rowCount = results.sumOf { it.second }
+    }
+
+    private fun mergeColumnDefinition(target: FileColumnDefinition, source: FileColumnDefinition) {
+        target.combinePossibleTypeMask(source.possibleTypeMask)
+        val targetModifier = target.typeModifier
+        val sourceModifier = source.typeModifier
+        targetModifier.maxLength = max(targetModifier.maxLength, sourceModifier.maxLength)
+        targetModifier.precision = max(targetModifier.precision, sourceModifier.precision)
+        targetModifier.scale = max(targetModifier.scale, sourceModifier.scale)
+        targetModifier.isContainsNonAscii = targetModifier.isContainsNonAscii || sourceModifier.isContainsNonAscii
+        targetModifier.isNullable = targetModifier.isNullable || sourceModifier.isNullable
+        target.isContainsEmpty = target.isContainsEmpty || source.isContainsEmpty
+        target.learnTemporalFormatter(source)
+        if ((source.maximum != null) && ((target.maximum == null) || (target.maximum < source.maximum))) {
+            target.maximum = source.maximum
         }
-        if (!columnDefinition.isContainsEmpty && cell.isEmpty()) {
-            columnDefinition.isContainsEmpty = true
+        if ((source.minimum != null) && ((target.minimum == null) || (target.minimum > source.minimum))) {
+            target.minimum = source.minimum
         }
     }
 
-    private fun setRange(columnDefinition: FileColumnDefinition, cell: String) {
-        val num = cell.toBigDecimalOrNull()
-        if (num != null) {
-            if ((columnDefinition.maximum == null) || (columnDefinition.maximum < num)) {
-                columnDefinition.maximum = num
+    private fun inferTypesSequentially(sampleRowCount: Long) {
+        val classifier = CellClassifier()
+        // a sample too large to count in Int covers any file that fits, read all of it
+        val fullScan = (sampleRowCount <= 0) || (sampleRowCount > Int.MAX_VALUE)
+        // taking a sample stops early, chunks parsed ahead in parallel would be wasted
+        readRecords(fullScan) { iterator ->
+            val records = when {
+                fullScan -> {
+                    rowCount = 0
+                    iterator.asSequence().onEach { rowCount++ }
+                }
+
+                fileInfo.reservoirSampling -> sampleReservoir(iterator, sampleRowCount.toInt()).asSequence()
+                else -> iterator.asSequence().take(sampleRowCount.toInt())
             }
-            if ((columnDefinition.minimum == null) || (columnDefinition.minimum > num)) {
-                columnDefinition.minimum = num
+            records.forEachIndexed { i, record ->
+                if (record.size != columns.size) {
+                    throw F2TException("format error found in line $i of ${fileInfo.filename}")
+                }
+                record.forEachIndexed { j, item ->
+                    classifier.classify(item.trim()).update(columns.getValue(j))
+                }
             }
         }
     }
 
-    private fun formatDateTime(value: Temporal?): String? {
-        return when (value) {
-            null -> null
-            is ZonedDateTime -> value.format(DateTimeTypeUtils.getDefaultDateTimeFormatter())
-            is LocalDate -> value.format(DateTimeTypeUtils.getDefaultDateFormatter())
-            is LocalTime -> value.format(DateTimeTypeUtils.getDefaultTimeFormatter())
-            else -> value.toString()
+    /**
+     * Pick sample records evenly from the whole file using reservoir sampling. Only the sample is kept in memory.
+     */
+    private fun sampleReservoir(records: Iterator<List<String>>, size: Int): List<List<String>> {
+        val reservoir = ArrayList<List<String>>(min(size, 4096))
+        val random = Random(size)
+        var count = 0
+        records.forEach { record ->
+            if (count < size) {
+                reservoir.add(record)
+            } else {
+                val j = random.nextInt(count + 1)
+                if (j < size) {
+                    reservoir[j] = record
+                }
+            }
+            count++
         }
+        rowCount = count
+        return reservoir
     }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.csv
+
+import org.apache.commons.csv.CSVFormat
+import org.apache.commons.csv.CSVParser
+import org.slf4j.LoggerFactory
+
+/**
+ * This class detects the dialect of a CSV file, the delimiter, quote character and the predefined
+ * <code>CSVFormat</code>s able to parse it, using only a leading sample of the file instead of the whole content.
+ *
+ * @property sample leading text of the CSV file, byte order mark excluded
+ * @property complete   whether the sample contains the whole file
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class CSVDialectSniffer(sample: String, complete: Boolean) {
+
+    companion object {
+        /**
+         * Default size in bytes of the sample to read from file head.
+         */
+        const val DEFAULT_SAMPLE_SIZE = 64 * 1024
+
+        private val CANDIDATE_DELIMITERS = listOf(',', '\t', ';', '|')
+        private val CANDIDATE_QUOTES = listOf('"', '\'')
+        private val logger = LoggerFactory.getLogger(CSVDialectSniffer::class.java)
+    }
+
+    private val sample: String
+    private val lines: List<String>
+
+    init {
+        // a truncated sample may end in the middle of a record, drop it
+        val end = if (complete) sample.length else sample.lastIndexOfAny(charArrayOf('\n', '\r')) + 1
+        this.sample = if (end > 0) sample.substring(0, end) else sample
+        lines = this.sample.lineSequence().filter { it.isNotEmpty() }.toList()
+    }
+
+    /**
+     * Detect the field delimiter. A delimiter appearing the same times in most lines wins, the given default one
+     * is returned if no candidate could be found. Delimiters are counted outside fields quoted by the given quote
+     * character, or by the candidate quote character opening most fields if none is given.
+     *
+     * @param default   default delimiter
+     * @param quote quote character, null to guess it
+     * @return delimiter
+     */
+    @JvmOverloads
+    fun detectDelimiter(default: Char, quote: Char? = null): Char {
+        if (lines.isEmpty()) {
+            return default
+        }
+        val quoteChar = quote ?: guessQuote()
+        var best = default
+        var bestScore = 0
+        for (delimiter in CANDIDATE_DELIMITERS) {
+            val score = scoreDelimiter(delimiter, quoteChar)
+            if (score == 0) {
+                continue
+            }
+            if ((score > bestScore) || ((score == bestScore) && (delimiter == default))) {
+                best = delimiter
+                bestScore = score
+            }
+        }
+        logger.debug("delimiter detected: '{}'", best)
+        return best
+    }
+
+    /**
+     * Detect the quote character by counting candidates wrapping a whole field.
+     *
+     * @param delimiter detected delimiter
+     * @param default   default quote character
+     * @return quote character
+     */
+    fun detectQuote(delimiter: Char, default: Char?): Char? {
+        val scores = CANDIDATE_QUOTES.associateWith { quote ->
+            lines.sumOf { line -> line.split(delimiter).count { it.length > 1 && it.first() == quote } }
+        }
+        val best = scores.maxByOrNull { it.value }!!
+        val quote = if (best.value > 0) best.key else default
+        logger.debug("quote detected: '{}'", quote)
+        return quote
+    }
+
+    /**
+     * Find the formats able to parse the sample. Formats parsing the sample into exactly the same records as the
+     * first successful one are folded into it, so only one index is returned when the sample is not ambiguous.
+     * All indexes are returned if no format could parse the sample.
+     *
+     * @param formats   formats to try, in order of preference
+     * @return indexes of candidate formats, in order of preference
+     */
+    fun findCandidateFormats(formats: List<CSVFormat>): List<Int> {
+        val results = formats.mapIndexedNotNull { i, format ->
+            parseSample(format)?.let { Pair(i, it) }
+        }
+        if (results.isEmpty()) {
+            logger.warn("no format could parse the sample, all formats will be tried")
+            return formats.indices.toList()
+        }
+        val first = results.first().second
+        val candidates = results.filterIndexed { i, result -> (i == 0) || (result.second != first) }.map { it.first }
+        logger.debug("candidate formats: {}", candidates)
+        return candidates
+    }
+
+    private fun parseSample(format: CSVFormat): List<List<String>>? {
+        return try {
+            CSVParser.parse(sample, format).use { parser ->
+                val columnCount = parser.headerNames.size
+                val records = parser.records.map { it.toList() }
+                if (records.any { it.size != columnCount }) null
+                else listOf(parser.headerNames).plus(records)
+            }
+        } catch (ex: Exception) {
+            null
+        }
+    }
+
+    /**
+     * Guess the quote character before delimiter is known, by counting candidates at start of a line or right after
+     * a candidate delimiter, where a quote opens a field.
+     */
+    private fun guessQuote(): Char {
+        val scores = CANDIDATE_QUOTES.associateWith { quote ->
+            lines.sumOf { line ->
+                line.indices.count { i ->
+                    (line[i] == quote) && ((i == 0) || CANDIDATE_DELIMITERS.contains(line[i - 1]))
+                }
+            }
+        }
+        val best = scores.maxByOrNull { it.value }!!
+        return if (best.value > 0) best.key else CANDIDATE_QUOTES.first()
+    }
+
+    private fun scoreDelimiter(delimiter: Char, quote: Char): Int {
+        val counts = lines.map { countOutsideQuotes(it, delimiter, quote) }
+        val headerCount = counts.first()
+        if (headerCount == 0) {
+            return 0
+        }
+        val consistent = counts.count { it == headerCount }
+        return consistent * 1024 + headerCount
+    }
+
+    private fun countOutsideQuotes(line: String, target: Char, quote: Char): Int {
+        var quoted = false
+        var count = 0
+        for (c in line) {
+            when {
+                c == quote -> quoted = !quoted
+                !quoted && (c == target) -> count++
+            }
+        }
+        return count
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.csv
+
+import com.hagoapp.f2t.F2TException
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.Future
+
+/**
+ * This class splits a CSV file into byte ranges at record boundaries and parses them on a fork-join pool using
+ * <code>MappedCSVTokenizer</code>. Split points follow the quote rules of the tokenizer, a quote opens a quoted field
+ * only at the start of a field, and a line break inside a quoted field never splits a chunk. The first record of the
+ * file is regarded as header and excluded from records.
+ *
+ * @property fileName   CSV file name
+ * @property charset    charset of file, must be supported by <code>MappedCSVTokenizer</code>
+ * @property delimiter  delimiter character
+ * @property quote  quote character
+ * @property parallelism    count of chunks parsed simultaneously
+ * @property chunkSize  expected size in bytes of each chunk
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ChunkedCSVParser @JvmOverloads constructor(
+    private val fileName: String,
+    private val charset: Charset,
+    private val delimiter: Char,
+    private val quote: Char?,
+    private val parallelism: Int,
+    private val chunkSize: Long = DEFAULT_CHUNK_SIZE
+) : Closeable {
+
+    companion object {
+        const val DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024
+        private const val SCAN_WINDOW_SIZE = 64L * 1024 * 1024
+        private const val LF = '\n'.code
+        private const val CR = '\r'.code
+        private const val BATCH_SIZE = 1024
+        private const val QUEUE_CAPACITY = 4
+        private val UTF8_BOM = byteArrayOf(0xEF.toByte(), 0xBB.toByte(), 0xBF.toByte())
+        private val logger = LoggerFactory.getLogger(ChunkedCSVParser::class.java)
+    }
+
+    private val pool = ForkJoinPool(parallelism.coerceAtLeast(1))
+
+    /**
+     * Byte ranges of chunks, as pairs of start offset(inclusive) and end offset(exclusive).
+     */
+    val chunks: List<Pair<Long, Long>> by lazy { split() }
+
+    /**
+     * Apply an action to the tokenizer of every chunk in parallel. The header record is already skipped from the
+     * tokenizer of first chunk.
+     *
+     * @param action    action to run on the tokenizer of a chunk, with chunk index
+     * @return results of all chunks, in the order of chunks
+     */
+    fun <T> mapChunks(action: (Int, MappedCSVTokenizer) -> T): List<T> {
+        val futures = chunks.indices.map { i ->
+            pool.submit(Callable { openChunk(i).use { tokenizer -> action(i, tokenizer) } })
+        }
+        return futures.map { getResult(it) }
+    }
+
+    /**
+     * Iterate all records in file order. As many chunks as parallelism are parsed ahead of the consumer, and each of
+     * them hands records over in batches through a small bounded queue, so memory usage is bounded by a few thousands
+     * of records per chunk regardless of chunk size. Iteration fails once it reaches a chunk failed to parse, as
+     * records after the failure are unknown and following records could not be numbered correctly.
+     *
+     * @return record iterator
+     */
+    fun records(): Iterator<List<String>> {
+        return OrderedRecordIterator()
+    }
+
+    override fun close() {
+        pool.shutdownNow()
+    }
+
+    private fun openChunk(index: Int): MappedCSVTokenizer {
+        val (start, end) = chunks[index]
+        val tokenizer = MappedCSVTokenizer(fileName, charset, delimiter, quote, start, end)
+        if ((index == 0) && tokenizer.hasNext()) {
+            tokenizer.next()
+        }
+        return tokenizer
+    }
+
+    private fun <T> getResult(future: Future<T>): T {
+        return try {
+            future.get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    private fun split(): List<Pair<Long, Long>> {
+        FileChannel.open(Paths.get(fileName), StandardOpenOption.READ).use { channel ->
+            val size = channel.size()
+            val splits = mutableListOf(0L)
+            val quoteByte = quote?.code ?: -1
+            val delimiterByte = delimiter.code
+            var target = chunkSize
+            var quoted = false
+            var closing = false
+            var fieldStart = true
+            var offset = 0L
+            while ((offset < size) && (target < size)) {
+                val len = (size - offset).coerceAtMost(SCAN_WINDOW_SIZE).toInt()
+                val buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, len.toLong())
+                val first = if ((offset == 0L) && (len >= UTF8_BOM.size) &&
+                    UTF8_BOM.indices.all { buffer.get(it) == UTF8_BOM[it] }
+                ) UTF8_BOM.size else 0
+                for (i in first until len) {
+                    val b = buffer.get(i).toInt()
+                    if (quoted) {
+                        if (b == quoteByte) {
+                            quoted = false
+                            closing = true
+                        }
+                        continue
+                    }
+                    if (closing && (b == quoteByte)) {
+                        // a doubled quote inside a quoted field
+                        quoted = true
+                        closing = false
+                        continue
+                    }
+                    closing = false
+                    if (b == quoteByte) {
+                        // a quote in the middle of an unquoted field is a literal
+                        quoted = fieldStart
+                        fieldStart = false
+                    } else if (b == delimiterByte) {
+                        fieldStart = true
+                    } else if ((b == LF) || (b == CR)) {
+                        fieldStart = true
+                        if ((b == LF) && (offset + i + 1 >= target)) {
+                            splits.add(offset + i + 1)
+                            target = offset + i + 1 + chunkSize
+                            if (target >= size) {
+                                break
+                            }
+                        }
+                    } else {
+                        fieldStart = false
+                    }
+                }
+                offset += len
+            }
+            val ranges = splits.mapIndexed { i, start ->
+                Pair(start, if (i == splits.size - 1) size else splits[i + 1])
+            }
+            logger.debug("{} split into {} chunks", fileName, ranges.size)
+            return ranges
+        }
+    }
+
+    /**
+     * Records of a chunk handed over to the consumer, or the error failing the chunk.
+     */
+    private class Batch(val records: List<List<String>>, val error: Throwable? = null)
+
+    private val endOfChunk = Batch(listOf())
+
+    private fun produce(index: Int, queue: BlockingQueue<Batch>) {
+        try {
+            openChunk(index).use { tokenizer ->
+                var batch = ArrayList<List<String>>(BATCH_SIZE)
+                while (tokenizer.hasNext()) {
+                    batch.add(tokenizer.next())
+                    if (batch.size == BATCH_SIZE) {
+                        queue.put(Batch(batch))
+                        batch = ArrayList(BATCH_SIZE)
+                    }
+                }
+                if (batch.isNotEmpty()) {
+                    queue.put(Batch(batch))
+                }
+            }
+        } catch (e: InterruptedException) {
+            // parser closed
+            return
+        } catch (e: Exception) {
+            logger.error("parse chunk {} of {} failed: {}", index, fileName, e.message)
+            queue.put(Batch(listOf(), e))
+        }
+        queue.put(endOfChunk)
+    }
+
+    private inner class OrderedRecordIterator : Iterator<List<String>> {
+        private val pending = ArrayDeque<BlockingQueue<Batch>>()
+        // one chunk per thread of pool, so that every chunk in flight is being parsed rather than waiting for a thread
+        private val maxInFlight = parallelism.coerceAtLeast(1)
+        private var nextChunk = 0
+        private var current: Iterator<List<String>> = emptyList<List<String>>().iterator()
+        private var error: Throwable? = null
+
+        override fun hasNext(): Boolean {
+            while (!current.hasNext()) {
+                error?.let { throw F2TException("parse chunk of $fileName failed", it) }
+                fill()
+                val queue = pending.firstOrNull() ?: return false
+                val batch = queue.take()
+                if (batch === endOfChunk) {
+                    pending.removeFirst()
+                    continue
+                }
+                current = batch.records.iterator()
+                error = batch.error
+            }
+            return true
+        }
+
+        override fun next(): List<String> {
+            if (!hasNext()) {
+                throw NoSuchElementException("no more record")
+            }
+            return current.next()
+        }
+
+        private fun fill() {
+            while ((pending.size < maxInFlight) && (nextChunk < chunks.size)) {
+                val index = nextChunk
+                val queue = ArrayBlockingQueue<Batch>(QUEUE_CAPACITY)
+                pending.addLast(queue)
+                pool.execute(Runnable { produce(index, queue) })
+                nextChunk++
+            }
+        }
+    }
+}
@@ -45,6 +45,38 @@ class FileInfoCsv : FileInfo() {
      * delimiter character to separate fields.
      */
     var delimiter: Char = ','
+
+    /**
+     * Whether to detect delimiter and quote character from the head of file, instead of using <code>delimiter</code>
+     * and <code>quote</code> set.
+     */
+    var detectDialect: Boolean = false
+
+    /**
+     * Whether to parse the file using only the format detected from the head of file. When not set, other formats
+     * are tried when the detected one fails and the head of file could be parsed by more than one format.
+     */
+    var strictFormat: Boolean = false
+
+    /**
+     * Whether to pick rows to infer column types randomly from the whole file, instead of taking leading rows. It
+     * only takes effect when a limited count of rows is requested for type inferring.
+     */
+    var reservoirSampling: Boolean = false
+
+    /**
+     * Whether to read the file through memory mapped windows, which saves much of the decoding cost for large files.
+     * It falls back to normal reading when the encoding or format is not supported by the memory mapped tokenizer.
+     */
+    var memoryMapped: Boolean = false
+
+    /**
+     * Count of threads to parse the file in chunks simultaneously, 1 or less means parsing in current thread only.
+     * Parallel parsing reads the file through memory mapped windows, so it has the same limitations as
+     * <code>memoryMapped</code>.
+     */
+    var parallelism: Int = 1
+
     override fun getFileTypeValue(): Int {
         return FILE_TYPE_CSV
     }
@@ -54,7 +86,9 @@ class FileInfoCsv : FileInfo() {
     }
 
     override fun toString(): String {
-        return "FileInfoCsv(encoding=$encoding, quote=$quote, delimiter=$delimiter, filename=$filename)"
+        return "FileInfoCsv(encoding=$encoding, quote=$quote, delimiter=$delimiter, detectDialect=$detectDialect, " +
+                "strictFormat=$strictFormat, reservoirSampling=$reservoirSampling, " +
+                "memoryMapped=$memoryMapped, parallelism=$parallelism, filename=$filename)"
     }
 
 }
@@ -0,0 +1,292 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.csv
+
+import org.apache.commons.csv.CSVFormat
+import java.io.Closeable
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+/**
+ * A CSV tokenizer working on memory mapped windows of a file. Delimiters and quotes are found directly from the
+ * mapped bytes, and a field is decoded to string only when it is fetched by <code>field</code>. It only supports
+ * charsets in which ASCII characters are encoded as single bytes and never appear inside multibyte sequences, e.g.
+ * UTF-8 and single byte charsets, and formats without escape character. Empty lines are skipped.
+ *
+ * @property charset    charset of file
+ * @property start  offset of file to start from, must be the start of a record
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class MappedCSVTokenizer @JvmOverloads constructor(
+    fileName: String,
+    private val charset: Charset,
+    delimiter: Char,
+    quote: Char?,
+    private val start: Long = 0,
+    end: Long = -1,
+    private var windowSize: Int = DEFAULT_WINDOW_SIZE
+) : Iterator<List<String>>, Closeable {
+
+    companion object {
+        const val DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024
+        private const val CR = '\r'.code
+        private const val LF = '\n'.code
+        private const val ASCII_SYMBOLS = "\"',;|\t\r\n"
+        private val UTF8_BOM = byteArrayOf(0xEF.toByte(), 0xBB.toByte(), 0xBF.toByte())
+
+        /**
+         * Check whether a CSV file in given charset and format could be tokenized by this class into the same records
+         * as Apache Common CSV. Formats are rejected if they need anything the tokenizer doesn't do, e.g. escaping,
+         * comments, null strings, trimming, trailing delimiters or keeping empty lines.
+         *
+         * @param charset   charset of file
+         * @param format    CSV format
+         * @return true if supported, otherwise false
+         */
+        @JvmStatic
+        fun isSupported(charset: Charset, format: CSVFormat): Boolean {
+            val delimiter = format.delimiterString
+            val quote = format.quoteCharacter
+            return (format.escapeCharacter == null) && (delimiter.length == 1) && (delimiter[0].code < 0x80) &&
+                    ((quote == null) || (quote.code < 0x80)) && isAsciiCompatible(charset) &&
+                    (format.commentMarker == null) && (format.nullString == null) &&
+                    !format.ignoreSurroundingSpaces && !format.trim && !format.trailingDelimiter &&
+                    format.ignoreEmptyLines
+        }
+
+        /**
+         * Check whether ASCII characters are encoded as single bytes in given charset and never appear inside
+         * multibyte sequences.
+         *
+         * @param charset   charset
+         * @return true if compatible, otherwise false
+         */
+        @JvmStatic
+        fun isAsciiCompatible(charset: Charset): Boolean {
+            return when (charset) {
+                StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1 -> true
+                else -> charset.canEncode() && (charset.newEncoder().maxBytesPerChar() == 1.0f) &&
+                        ASCII_SYMBOLS.toByteArray(charset).contentEquals(ASCII_SYMBOLS.toByteArray(StandardCharsets.US_ASCII))
+            }
+        }
+    }
+
+    private val channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)
+    private val end = if (end < 0) channel.size() else end
+    private val delimiterByte = delimiter.code
+    private val quoteByte = quote?.code ?: -1
+    private var window: MappedByteBuffer? = null
+    private var windowStart = 0L
+    private var position = start
+    private var fieldStarts = IntArray(64)
+    private var fieldEnds = IntArray(64)
+    private var fieldQuoted = BooleanArray(64)
+    private var scratch = ByteArray(1024)
+    private var lookedAhead = false
+    private var hasRecord = false
+
+    /**
+     * Count of fields in current record.
+     */
+    var fieldCount = 0
+        private set
+
+    /**
+     * Count of records read.
+     */
+    var recordCount = 0L
+        private set
+
+    init {
+        if ((start == 0L) && (charset == StandardCharsets.UTF_8) && (this.end >= UTF8_BOM.size)) {
+            mapWindow(0)
+            if (UTF8_BOM.indices.all { window!!.get(it) == UTF8_BOM[it] }) {
+                position = UTF8_BOM.size.toLong()
+            }
+        }
+    }
+
+    /**
+     * Move to next record. Fields of the record could then be fetched using <code>field</code>. Don't mix this method
+     * with the iterator methods.
+     *
+     * @return true if a record is found, false if the end of range is reached
+     */
+    fun nextRecord(): Boolean {
+        while (true) {
+            if (position >= end) {
+                fieldCount = 0
+                return false
+            }
+            ensureWindow(position)
+            val w = window!!
+            val base = (position - windowStart).toInt()
+            val limit = w.limit()
+            val lastWindow = windowStart + limit >= end
+            var i = base
+            var count = 0
+            var fieldStart = base
+            var inQuote = false
+            var quoted = false
+            var recordEnd = -1
+            var next = -1
+            while (i < limit) {
+                val b = w.get(i).toInt()
+                if (inQuote) {
+                    if (b == quoteByte) {
+                        if ((i + 1 >= limit) && !lastWindow) {
+                            break
+                        }
+                        if ((i + 1 < limit) && (w.get(i + 1).toInt() == quoteByte)) {
+                            i += 2
+                            continue
+                        }
+                        inQuote = false
+                    }
+                    i++
+                    continue
+                }
+                if ((b == quoteByte) && (i == fieldStart)) {
+                    inQuote = true
+                    quoted = true
+                } else if (b == delimiterByte) {
+                    count = addField(count, fieldStart, i, quoted)
+                    fieldStart = i + 1
+                    quoted = false
+                } else if ((b == LF) || (b == CR)) {
+                    if ((b == CR) && (i + 1 >= limit) && !lastWindow) {
+                        break
+                    }
+                    recordEnd = i
+                    next = if ((b == CR) && (i + 1 < limit) && (w.get(i + 1).toInt() == LF)) i + 2 else i + 1
+                    break
+                }
+                i++
+            }
+            if (recordEnd < 0) {
+                if (!lastWindow) {
+                    // record crosses the window, map again from the record start
+                    if ((base == 0) && (windowSize < Int.MAX_VALUE)) {
+                        windowSize = (windowSize.toLong() * 2).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+                    }
+                    mapWindow(position)
+                    continue
+                }
+                recordEnd = limit
+                next = limit
+            }
+            count = addField(count, fieldStart, recordEnd, quoted)
+            position = windowStart + next
+            if ((count == 1) && (recordEnd == base)) {
+                continue
+            }
+            fieldCount = count
+            recordCount++
+            return true
+        }
+    }
+
+    /**
+     * Decode a field of current record.
+     *
+     * @param index 0 based field index
+     * @return field value, quotes removed
+     */
+    fun field(index: Int): String {
+        if ((index < 0) || (index >= fieldCount)) {
+            throw IndexOutOfBoundsException("field $index not exists in a record of $fieldCount fields")
+        }
+        val w = window!!
+        val s = fieldStarts[index]
+        val e = fieldEnds[index]
+        if (scratch.size < e - s) {
+            scratch = ByteArray(e - s)
+        }
+        var n = 0
+        if (!fieldQuoted[index]) {
+            for (i in s until e) {
+                scratch[n++] = w.get(i)
+            }
+        } else {
+            var i = s + 1
+            var closed = false
+            while (i < e) {
+                val b = w.get(i)
+                if (!closed && (b.toInt() == quoteByte)) {
+                    if ((i + 1 < e) && (w.get(i + 1).toInt() == quoteByte)) {
+                        scratch[n++] = b
+                        i += 2
+                        continue
+                    }
+                    closed = true
+                } else {
+                    scratch[n++] = b
+                }
+                i++
+            }
+        }
+        return String(scratch, 0, n, charset)
+    }
+
+    /**
+     * File offset where next record starts.
+     */
+    fun getPosition(): Long {
+        return position
+    }
+
+    override fun hasNext(): Boolean {
+        if (!lookedAhead) {
+            hasRecord = nextRecord()
+            lookedAhead = true
+        }
+        return hasRecord
+    }
+
+    override fun next(): List<String> {
+        if (!hasNext()) {
+            throw NoSuchElementException("no more record")
+        }
+        lookedAhead = false
+        return List(fieldCount) { field(it) }
+    }
+
+    override fun close() {
+        window = null
+        channel.close()
+    }
+
+    private fun addField(index: Int, fieldStart: Int, fieldEnd: Int, quoted: Boolean): Int {
+        if (index >= fieldStarts.size) {
+            fieldStarts = fieldStarts.copyOf(index * 2)
+            fieldEnds = fieldEnds.copyOf(index * 2)
+            fieldQuoted = fieldQuoted.copyOf(index * 2)
+        }
+        fieldStarts[index] = fieldStart
+        fieldEnds[index] = fieldEnd
+        fieldQuoted[index] = quoted
+        return index + 1
+    }
+
+    private fun ensureWindow(offset: Long) {
+        val w = window
+        if ((w == null) || (offset < windowStart) || (offset >= windowStart + w.limit())) {
+            mapWindow(offset)
+        }
+    }
+
+    private fun mapWindow(offset: Long) {
+        val size = (end - offset).coerceAtMost(windowSize.toLong())
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size)
+        windowStart = offset
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import org.apache.poi.ss.usermodel.Cell
+import org.apache.poi.ss.usermodel.CellType
+import org.apache.poi.ss.usermodel.FormulaError
+
+/**
+ * Value of an Excel cell detached from any workbook model, so that cells decoded by POI user model and by
+ * streaming readers are typed the same way. Formula cells are represented by their cached results, and error
+ * cells by their error texts.
+ *
+ * @property type   one of <code>BLANK</code>, <code>BOOLEAN</code>, <code>NUMERIC</code> and <code>STRING</code>
+ * @property numericValue   value of numeric cell
+ * @property stringValue    value of string cell
+ * @property booleanValue   value of boolean cell
+ * @property formatIndex    index of number format of the cell style
+ * @property formatString   number format of the cell style
+ * @property isDateFormatted    whether a numeric cell is formatted as date / time
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ExcelCell(
+    val type: CellType,
+    val numericValue: Double = 0.0,
+    val stringValue: String = "",
+    val booleanValue: Boolean = false,
+    val formatIndex: Int = 0,
+    val formatString: String? = null,
+    val isDateFormatted: Boolean = false
+) {
+    companion object {
+        /**
+         * A blank cell, used for missing cells as well.
+         */
+        @JvmField
+        val BLANK = ExcelCell(CellType.BLANK)
+
+        /**
+         * Create a cell from a cell of POI user model.
+         *
+         * @param cell  POI cell, null as blank
+         * @param styles    resolved styles of workbook keyed by style index, null to resolve style of every cell
+         * @return cell value
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun of(cell: Cell?, styles: MutableMap<Int, ExcelCellStyle>? = null): ExcelCell {
+            cell ?: return BLANK
+            val type = if (cell.cellType == CellType.FORMULA) cell.cachedFormulaResultType else cell.cellType
+            return when (type) {
+                CellType.BOOLEAN -> ExcelCell(CellType.BOOLEAN, booleanValue = cell.booleanCellValue)
+                CellType.NUMERIC -> {
+                    val cellStyle = cell.cellStyle
+                    val style = styles?.getOrPut(cellStyle.index.toInt()) { ExcelCellStyle.of(cellStyle) }
+                        ?: ExcelCellStyle.of(cellStyle)
+                    style.numericCell(cell.numericCellValue)
+                }
+
+                CellType.STRING -> ExcelCell(CellType.STRING, stringValue = cell.stringCellValue)
+                CellType.ERROR -> ExcelCell(CellType.STRING, stringValue = errorText(cell.errorCellValue.toInt()))
+                else -> BLANK
+            }
+        }
+
+        /**
+         * Get the text of an error code, e.g. <code>#DIV/0!</code>.
+         *
+         * @param code  error code
+         * @return error text
+         */
+        @JvmStatic
+        fun errorText(code: Int): String {
+            return try {
+                FormulaError.forInt(code).string
+            } catch (e: IllegalArgumentException) {
+                "#ERR$code"
+            }
+        }
+    }
+}
+
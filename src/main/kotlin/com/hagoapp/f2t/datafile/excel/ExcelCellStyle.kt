@@ -0,0 +1,57 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import org.apache.poi.ss.usermodel.CellStyle
+import org.apache.poi.ss.usermodel.CellType
+import org.apache.poi.ss.usermodel.DateUtil
+
+/**
+ * Number format of a cell style, resolved once per style so that its format string is not re-evaluated for every
+ * cell. Readers keep these per workbook, keyed by style index.
+ *
+ * @property formatIndex    index of number format
+ * @property formatString   number format
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ExcelCellStyle(val formatIndex: Int, val formatString: String?) {
+
+    companion object {
+        /**
+         * Create from a cell style of POI user model.
+         *
+         * @param style cell style
+         * @return style
+         */
+        @JvmStatic
+        fun of(style: CellStyle): ExcelCellStyle {
+            return ExcelCellStyle(style.dataFormat.toInt(), style.dataFormatString)
+        }
+    }
+
+    /**
+     * Whether the number format is a date / time format.
+     */
+    val isDateFormat = (formatString != null) && DateUtil.isADateFormat(formatIndex, formatString)
+
+    /**
+     * Create a numeric cell of this style.
+     *
+     * @param value numeric value
+     * @return cell
+     */
+    fun numericCell(value: Double): ExcelCell {
+        return ExcelCell(
+            CellType.NUMERIC,
+            numericValue = value,
+            formatIndex = formatIndex,
+            formatString = formatString,
+            isDateFormatted = isDateFormat && DateUtil.isValidExcelDate(value)
+        )
+    }
+}
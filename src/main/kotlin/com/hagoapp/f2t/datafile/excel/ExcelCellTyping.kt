@@ -0,0 +1,198 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import com.hagoapp.f2t.ColumnTypeModifier
+import com.hagoapp.f2t.FileColumnDefinition
+import com.hagoapp.f2t.datafile.CellClassifier
+import com.hagoapp.f2t.util.DateTimeTypeUtils
+import com.hagoapp.f2t.util.JDBCTypeMask
+import com.hagoapp.f2t.util.JDBCTypeUtils
+import com.hagoapp.util.NumericUtils
+import org.apache.poi.ss.usermodel.CellType
+import org.apache.poi.ss.usermodel.DataFormatter
+import org.apache.poi.ss.usermodel.DateUtil
+import org.slf4j.LoggerFactory
+import java.sql.JDBCType
+import java.sql.JDBCType.*
+import java.time.LocalDateTime
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.time.temporal.ChronoField
+import kotlin.math.max
+import kotlin.math.roundToLong
+
+/**
+ * Type inference and value conversion of Excel cells, shared by all Excel readers so that they type cells the
+ * same way. An instance is not thread safe.
+ *
+ * @property use1904    whether the workbook uses 1904 date windowing
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ExcelCellTyping(private val use1904: Boolean = false) {
+
+    private val logger = LoggerFactory.getLogger(ExcelCellTyping::class.java)
+    private val formatter = DataFormatter()
+    private val classifier = CellClassifier()
+
+    /**
+     * Format a cell as Excel displays it.
+     *
+     * @param cell  cell
+     * @return formatted text
+     */
+    fun format(cell: ExcelCell): String {
+        return when (cell.type) {
+            CellType.BOOLEAN -> if (cell.booleanValue) "TRUE" else "FALSE"
+            CellType.NUMERIC -> formatter.formatRawCellContents(
+                cell.numericValue, cell.formatIndex, cell.formatString, use1904
+            )
+
+            CellType.STRING -> cell.stringValue
+            else -> ""
+        }
+    }
+
+    /**
+     * Update definition of a column with a cell of it.
+     *
+     * @param columnDefinition  column definition
+     * @param cell  cell of column
+     */
+    fun setupColumnDefinition(columnDefinition: FileColumnDefinition, cell: ExcelCell) {
+        val possibleTypes = guessCellType(cell, columnDefinition.typeModifier)
+        if (logger.isDebugEnabled) {
+            logger.debug("guessed types: {}", JDBCTypeMask.toSet(possibleTypes))
+        }
+        columnDefinition.combinePossibleTypeMask(possibleTypes)
+        val text = format(cell)
+        setRange(columnDefinition, text)
+        if (!columnDefinition.isContainsEmpty && text.isEmpty()) {
+            columnDefinition.isContainsEmpty = true
+        }
+    }
+
+    /**
+     * Convert a cell to value of given type.
+     *
+     * @param cell  cell
+     * @param type  type of column
+     * @return typed value
+     */
+    fun getCellValue(cell: ExcelCell, type: JDBCType): Any? {
+        return when {
+            cell.type == CellType.BOOLEAN -> cell.booleanValue
+            (cell.type == CellType.NUMERIC) && cell.isDateFormatted -> getDateCellValue(cell)
+            cell.type == CellType.NUMERIC -> if (type == BIGINT) cell.numericValue.toLong()
+            else JDBCTypeUtils.toTypedValue(format(cell), type)
+
+            cell.type == CellType.BLANK -> format(cell)
+            else -> JDBCTypeUtils.toTypedValue(format(cell), type)
+        }
+    }
+
+    private fun setRange(columnDefinition: FileColumnDefinition, cell: String) {
+        val num = cell.toBigDecimalOrNull()
+        if (num != null) {
+            if ((columnDefinition.maximum == null) || (columnDefinition.maximum < num)) {
+                columnDefinition.maximum = num
+            }
+            if ((columnDefinition.minimum == null) || (columnDefinition.minimum > num)) {
+                columnDefinition.minimum = num
+            }
+        }
+    }
+
+    private fun guessCellType(cell: ExcelCell, modifier: ColumnTypeModifier): Long {
+        return when {
+            cell.type == CellType.BOOLEAN -> setupBooleanType(modifier)
+            cell.type == CellType.NUMERIC && cell.isDateFormatted -> guessDateTimeType(cell, modifier)
+            cell.type == CellType.NUMERIC -> guessNumericType(cell, modifier)
+            cell.type == CellType.BLANK -> 0L
+            else -> {
+                val classified = classifier.classify(cell.stringValue)
+                if (classified.length > modifier.maxLength) {
+                    modifier.maxLength = classified.length
+                }
+                if (!classified.isAscii) {
+                    modifier.isContainsNonAscii = true
+                }
+                // blank strings are still candidates of all text types, as before
+                if (classified.typeMask == 0L) JDBCTypeUtils.guessTypeMask(cell.stringValue) else classified.typeMask
+            }
+        }
+    }
+
+    private fun setupBooleanType(typeModifier: ColumnTypeModifier): Long {
+        val len = max(true.toString().length, false.toString().length)
+        if (len > typeModifier.maxLength) {
+            typeModifier.maxLength = len
+        }
+        return JDBCTypeMask.of(BOOLEAN)
+    }
+
+    private fun guessDateTimeType(cell: ExcelCell, typeModifier: ColumnTypeModifier): Long {
+        var ret = 0L
+        val v: LocalDateTime = DateUtil.getLocalDateTime(cell.numericValue, use1904)
+        val str = when {
+            cell.numericValue < 0 -> {
+                ret = JDBCTypeMask.of(TIME)
+                DateTimeTypeUtils.getDefaultTimeFormatter().format(v)
+            }
+
+            cell.numericValue - cell.numericValue.roundToLong().toDouble() == 0.0 -> {
+                ret = JDBCTypeMask.of(DATE)
+                if (v.isSupported(ChronoField.OFFSET_SECONDS)) {
+                    DateTimeTypeUtils.getDefaultDateFormatter().format(v)
+                } else {
+                    DateTimeTypeUtils.getDefaultDateFormatter().format(ZonedDateTime.of(v, ZoneId.systemDefault()))
+                }
+            }
+
+            else -> {
+                ret = JDBCTypeMask.of(DATE, TIMESTAMP_WITH_TIMEZONE)
+                if (v.isSupported(ChronoField.OFFSET_SECONDS)) {
+                    DateTimeTypeUtils.getDefaultDateTimeFormatter().format(v)
+                } else {
+                    DateTimeTypeUtils.getDefaultDateTimeFormatter().format(ZonedDateTime.of(v, ZoneId.systemDefault()))
+                }
+            }
+        }
+        if (str.length > typeModifier.maxLength) {
+            typeModifier.maxLength = str.length
+        }
+        return ret
+    }
+
+    private fun guessNumericType(cell: ExcelCell, typeModifier: ColumnTypeModifier): Long {
+        val nv = cell.numericValue
+        var ret = JDBCTypeUtils.floatTypeMask(nv)
+        if (nv == nv.roundToLong().toDouble()) {
+            ret = ret or JDBCTypeUtils.intTypeMask(nv.roundToLong())
+        }
+        if (JDBCTypeMask.contains(ret, DECIMAL) || JDBCTypeMask.contains(ret, BIGINT)) {
+            val p = NumericUtils.detectPrecision(nv)
+            if (p.first > typeModifier.precision) {
+                typeModifier.precision = p.first
+            }
+            if (p.second > typeModifier.scale) {
+                typeModifier.scale = p.second
+            }
+            val strValue = nv.toString()
+            if (strValue.length > typeModifier.maxLength) {
+                typeModifier.maxLength = strValue.length
+            }
+        }
+        return ret
+    }
+
+    private fun getDateCellValue(cell: ExcelCell): ZonedDateTime {
+        val v = DateUtil.getJavaDate(cell.numericValue, use1904)
+        return ZonedDateTime.ofInstant(v.toInstant(), ZoneId.systemDefault())
+    }
+}
@@ -6,12 +6,18 @@
 
 package com.hagoapp.f2t.datafile.excel
 
-import org.apache.poi.ss.usermodel.WorkbookFactory
-import java.io.FileInputStream
+import com.hagoapp.f2t.F2TException
+import org.apache.poi.openxml4j.opc.OPCPackage
+import org.apache.poi.openxml4j.opc.PackageAccess
+import org.apache.poi.poifs.filesystem.FileMagic
+import org.apache.poi.poifs.filesystem.POIFSFileSystem
+import java.io.File
 import java.io.InputStream
 
 /**
- * This class is used to parse sheet information of an Excel file, no any data reading will trigger.
+ * This class is used to parse sheet information of an Excel file, no any data reading will trigger. No workbook
+ * model is built, sheet names come from workbook globals, row counts from sheet dimensions and columns from the
+ * first row of each sheet.
  *
  * @author Chaojun Sun
  * @since 0.6
@@ -19,27 +25,69 @@ import java.io.InputStream
 class ExcelDataFileParser {
 
     private lateinit var info: ExcelInfo
+    private val typing = ExcelCellTyping()
 
     private fun init(input: InputStream) {
-        WorkbookFactory.create(input).use { workbook ->
-            info = ExcelInfo(
-                sheets = (0 until workbook.numberOfSheets).map { i ->
-                    val sheet = workbook.getSheetAt(i)
-                    val row = sheet.getRow(0)
-                    if (row == null) {
-                        ExcelSheetInfo(listOf(), 0, sheet.sheetName)
-                    } else {
-                        ExcelSheetInfo(
-                            rowCount = sheet.lastRowNum - sheet.firstRowNum + 1,
-                            columns = (row.firstCellNum until row.lastCellNum).mapNotNull { j ->
-                                row.getCell(j)?.stringCellValue
-                            },
-                            name = sheet.sheetName
-                        )
-                    }
+        val stream = FileMagic.prepareToCheckMagic(input)
+        when (FileMagic.valueOf(stream)) {
+            FileMagic.OOXML -> XlsxWorkbook(OPCPackage.open(stream)).use { init(it) }
+            FileMagic.OLE2 -> XlsWorkbook(POIFSFileSystem(stream)).use { init(it) }
+            else -> throw F2TException("Not an excel file")
+        }
+    }
+
+    private fun init(fileName: String) {
+        when (FileMagic.valueOf(File(fileName))) {
+            FileMagic.OOXML -> XlsxWorkbook(OPCPackage.open(fileName, PackageAccess.READ)).use { init(it) }
+            FileMagic.OLE2 -> XlsWorkbook(fileName).use { init(it) }
+            else -> throw F2TException("$fileName is not an excel file")
+        }
+    }
+
+    private fun init(workbook: XlsxWorkbook) {
+        // only header rows need shared strings, which are streamed as far as they refer instead of loading all
+        XlsxSharedStringStream(workbook).use { strings ->
+            info = ExcelInfo(sheets = workbook.sheets.mapIndexed { i, sheet ->
+                var header = true
+                XlsxSheetRows(workbook, i) { index -> if (header) strings[index] else "" }.use { rows ->
+                    sheetInfo(sheet.name, rows, rows.dimension) { header = false }
                 }
-            )
+            })
+        }
+    }
+
+    private fun init(workbook: XlsWorkbook) {
+        info = ExcelInfo(sheets = workbook.sheets.mapIndexed { i, sheet ->
+            XlsSheetRows(workbook, i).use { rows -> sheetInfo(sheet.name, rows, rows.dimension) }
+        })
+    }
+
+    /**
+     * Build sheet information from its first row, rows are scanned only if sheet has no dimension.
+     * <code>onHeader</code> is called once the first row is read, values of later rows are not used.
+     */
+    private fun sheetInfo(
+        name: String,
+        rows: ExcelRowSource,
+        dimension: IntRange?,
+        onHeader: () -> Unit = {}
+    ): ExcelSheetInfo {
+        val row = if (rows.hasNext()) rows.next() else null
+        onHeader()
+        if ((row == null) || (row.index != 0)) {
+            return ExcelSheetInfo(listOf(), 0, name)
+        }
+        val firstRow = row.index
+        var lastRow = row.index
+        if (dimension == null) {
+            rows.forEach { lastRow = it.index }
         }
+        return ExcelSheetInfo(
+            rowCount = dimension?.let { it.last - it.first + 1 } ?: (lastRow - firstRow + 1),
+            // cells missing in header row are padded as blanks, they are not columns
+            columns = row.cells.filter { it !== ExcelCell.BLANK }.map { typing.format(it) },
+            name = name
+        )
     }
 
     private constructor()
@@ -49,7 +97,7 @@ class ExcelDataFileParser {
     }
 
     constructor(fileName: String) : this() {
-        FileInputStream(fileName).use { init(it) }
+        init(fileName)
     }
 
     /**
@@ -0,0 +1,28 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import java.io.Closeable
+
+/**
+ * A row of Excel cells.
+ *
+ * @property index  0 based row index in sheet
+ * @property cells  cells of row, the index of list is the column index, missing cells are blank
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+data class ExcelRow(val index: Int, val cells: List<ExcelCell>)
+
+/**
+ * Rows of a sheet read in order by a streaming reader. Rows not stored in file are skipped, so row indexes may
+ * not be continuous.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+interface ExcelRowSource : Iterator<ExcelRow>, Closeable
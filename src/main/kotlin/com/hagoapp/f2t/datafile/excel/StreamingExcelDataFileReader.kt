@@ -0,0 +1,195 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import com.hagoapp.f2t.DataCell
+import com.hagoapp.f2t.DataRow
+import com.hagoapp.f2t.F2TException
+import com.hagoapp.f2t.FileColumnDefinition
+import com.hagoapp.f2t.datafile.*
+import org.slf4j.LoggerFactory
+import java.sql.JDBCType.*
+
+/**
+ * Base of Excel readers which stream rows of a sheet instead of loading the workbook. The sheet is read twice,
+ * the first pass finds columns and infers their types from sample rows, and the second pass reads data. Only the
+ * current row is kept in memory. Cells are typed by <code>ExcelCellTyping</code>, the same as
+ * <code>ExcelDataFileReader</code>.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+abstract class StreamingExcelDataFileReader : Reader {
+    protected lateinit var infoExcel: FileInfoExcel
+    private var currentRow = 0
+    private lateinit var columns: Map<Int, FileColumnDefinition>
+    private var determiner = FileTypeDeterminer(FileColumnTypeDeterminer.LeastTypeDeterminer)
+    private var skipTypeInfer = false
+    private var inferSampleCount = 100L
+    private var typing = ExcelCellTyping()
+    private var dataRows: ExcelRowSource? = null
+    private var dataIterator: Iterator<ExcelRow>? = null
+    private val logger = LoggerFactory.getLogger(StreamingExcelDataFileReader::class.java)
+
+    /**
+     * Open the workbook and select the sheet to read.
+     *
+     * @param fileInfo  Excel file information
+     * @return whether the workbook uses 1904 date windowing
+     */
+    protected abstract fun openWorkbook(fileInfo: FileInfoExcel): Boolean
+
+    /**
+     * Start a pass over rows of the selected sheet. Null is returned if workbook has no sheet.
+     *
+     * @return rows of sheet
+     */
+    protected abstract fun openRows(): ExcelRowSource?
+
+    /**
+     * Close the workbook.
+     */
+    protected abstract fun closeWorkbook()
+
+    override fun open(fileInfo: FileInfo) {
+        if (fileInfo !is FileInfoExcel) {
+            throw F2TException("Not a FileInfoExcel class")
+        }
+        infoExcel = fileInfo
+        typing = ExcelCellTyping(openWorkbook(fileInfo))
+    }
+
+    override fun findColumns(): List<FileColumnDefinition> {
+        if (!this::columns.isInitialized) {
+            doInitColumns(inferSampleCount)
+        }
+        return columns.values.sortedBy { it.name }
+    }
+
+    override fun inferColumnTypes(sampleRowCount: Long): List<FileColumnDefinition> {
+        if ((!this::columns.isInitialized) || ((inferSampleCount > 0) && (sampleRowCount > inferSampleCount))) {
+            inferSampleCount = sampleRowCount
+            doInitColumns(inferSampleCount)
+        }
+        return columns.values.sortedBy { it.name }
+    }
+
+    private fun doInitColumns(sampleRowCount: Long) {
+        val source = openRows()
+        if (source == null) {
+            logger.warn("Empty excel!")
+            columns = mapOf()
+            return
+        }
+        source.use {
+            val rows = fillGaps(it)
+            if (!rows.hasNext()) {
+                logger.warn("Empty excel!")
+                columns = mapOf()
+                return
+            }
+            columns = rows.next().cells.mapIndexed { i, cell ->
+                Pair(i, FileColumnDefinition(typing.format(cell), i))
+            }.toMap()
+            if (skipTypeInfer) {
+                columns.values.forEach { column -> column.possibleTypes = setOf(NCHAR, NVARCHAR, NCLOB) }
+            } else {
+                var count = 0L
+                while (((sampleRowCount <= 0) || (count < sampleRowCount)) && rows.hasNext()) {
+                    val row = rows.next()
+                    if (row.cells.size > columns.size) {
+                        throw F2TException(
+                            "format error in ${infoExcel.filename}, line ${row.index} contains more cells than field row"
+                        )
+                    }
+                    for (colIndex in columns.keys.indices) {
+                        val cell = row.cells.getOrElse(colIndex) { ExcelCell.BLANK }
+                        typing.setupColumnDefinition(columns.getValue(colIndex), cell)
+                    }
+                    count++
+                }
+            }
+        }
+        columns.values.forEach { column ->
+            column.dataType = determiner.determineType(column)
+        }
+    }
+
+    /**
+     * Rows missing from file are returned as empty rows, as the workbook model does.
+     */
+    private fun fillGaps(source: ExcelRowSource): Iterator<ExcelRow> {
+        return iterator {
+            var expected = -1
+            for (row in source) {
+                if (expected >= 0) {
+                    while (expected < row.index) {
+                        yield(ExcelRow(expected, listOf()))
+                        expected++
+                    }
+                }
+                yield(row)
+                expected = row.index + 1
+            }
+        }
+    }
+
+    override fun setupTypeDeterminer(determiner: FileTypeDeterminer): Reader {
+        this.determiner = determiner
+        return this
+    }
+
+    override fun skipTypeInfer(): Reader {
+        skipTypeInfer = true
+        return this
+    }
+
+    override fun close() {
+        try {
+            dataRows?.close()
+            closeWorkbook()
+        } catch (e: Throwable) {
+            //
+        }
+    }
+
+    private fun openDataRows(): Iterator<ExcelRow> {
+        val iterator = dataIterator
+        if (iterator != null) {
+            return iterator
+        }
+        findColumns()
+        val source = openRows()
+        dataRows = source
+        val rows = if (source == null) listOf<ExcelRow>().iterator() else fillGaps(source)
+        if (rows.hasNext()) {
+            // skip the field row
+            rows.next()
+        }
+        dataIterator = rows
+        return rows
+    }
+
+    override fun hasNext(): Boolean {
+        return openDataRows().hasNext()
+    }
+
+    override fun next(): DataRow {
+        if (!hasNext()) {
+            throw F2TException("No more line")
+        }
+        val rawRow = openDataRows().next()
+        currentRow++
+        val dataCells = columns.keys.map { colIndex ->
+            val rawCell = rawRow.cells.getOrElse(colIndex) { ExcelCell.BLANK }
+            val cellValue = typing.getCellValue(rawCell, columns.getValue(colIndex).dataType)
+            logger.debug("{}: {}", columns.getValue(colIndex).name, cellValue)
+            DataCell(cellValue, colIndex)
+        }
+        return DataRow(currentRow.toLong() - 1, dataCells)
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+/**
+ * Streaming reader for xls files. BIFF records of sheet are decoded into rows as they are read, and shared
+ * strings and cell styles are resolved from workbook globals, so that no HSSF workbook model is built.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsDataFileReader() : StreamingExcelDataFileReader() {
+    private var workbook: XlsWorkbook? = null
+    private var shared: XlsWorkbook? = null
+    private var sheetIndex = 0
+    private var rowCount: Int? = null
+
+    /**
+     * Create a reader of an opened workbook, which is not closed with reader. Reader streams its sheet from a fork
+     * of workbook sharing its globals, so that sheets of a workbook can be read by several readers concurrently.
+     *
+     * @param workbook  opened workbook
+     */
+    constructor(workbook: XlsWorkbook) : this() {
+        shared = workbook
+    }
+
+    override fun openWorkbook(fileInfo: FileInfoExcel): Boolean {
+        val wb = shared?.fork() ?: XlsWorkbook(fileInfo.filename!!)
+        workbook = wb
+        if (wb.sheets.isNotEmpty()) {
+            sheetIndex = wb.selectSheet(fileInfo.sheetIndex, fileInfo.sheetName)
+            rowCount = XlsSheetRows(wb, sheetIndex).use { rows -> rows.dimension?.let { it.last - it.first } }
+        }
+        return wb.isDate1904
+    }
+
+    override fun openRows(): ExcelRowSource? {
+        val wb = workbook!!
+        return if (wb.sheets.isEmpty()) null else XlsSheetRows(wb, sheetIndex)
+    }
+
+    override fun closeWorkbook() {
+        workbook?.close()
+    }
+
+    override fun getRowCount(): Int? {
+        return rowCount
+    }
+
+    override fun getSupportedFileType(): Set<Int> {
+        return setOf(FileInfoExcel.FILE_TYPE_EXCEL)
+    }
+}
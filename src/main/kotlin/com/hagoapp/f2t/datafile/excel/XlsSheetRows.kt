@@ -0,0 +1,217 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import org.apache.poi.hssf.record.*
+import org.apache.poi.ss.usermodel.CellType
+import java.io.InputStream
+
+/**
+ * Rows of a xls sheet decoded from BIFF records as they are read, so that only one row is kept in memory. Sheet
+ * substream is located by the BOF offset recorded in workbook globals, or by counting substreams when workbook is
+ * encrypted.
+ *
+ * @param workbook  workbook of sheet
+ * @param sheetIndex    index of sheet
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsSheetRows(private val workbook: XlsWorkbook, sheetIndex: Int) : ExcelRowSource {
+    private val input: InputStream = workbook.openStream()
+    private val records: RecordFactoryInputStream
+    private var rowIndex = -1
+    private var cells = mutableListOf<ExcelCell>()
+    private var pendingString: Pair<Int, Int>? = null
+    private var nextRow: ExcelRow? = null
+    private var finished = false
+    private var sheetEnded = false
+    private var lookahead: Record? = null
+
+    /**
+     * Range of row indexes from the DIMENSIONS record of sheet, null if sheet has no dimension.
+     */
+    var dimension: IntRange? = null
+        private set
+
+    init {
+        val entry = workbook.sheets[sheetIndex]
+        if (workbook.isEncrypted) {
+            records = RecordFactoryInputStream(input, false)
+            skipToSheet(workbook.sheets.map { it.bofPosition }.sorted().indexOf(entry.bofPosition))
+        } else {
+            input.skip(entry.bofPosition.toLong())
+            records = RecordFactoryInputStream(input, false)
+            // the BOF record of sheet
+            records.nextRecord()
+        }
+        // the DIMENSIONS record comes before cells
+        while (true) {
+            val record = records.nextRecord()
+            if ((record == null) || (record is EOFRecord)) {
+                finished = true
+                break
+            }
+            if (record is DimensionsRecord) {
+                if (record.lastRow > record.firstRow) {
+                    dimension = record.firstRow until record.lastRow
+                }
+                break
+            }
+            if (record is CellValueRecordInterface) {
+                lookahead = record
+                break
+            }
+        }
+    }
+
+    /**
+     * Read records until the BOF record of the n-th sheet substream, skipping workbook globals and nested
+     * substreams such as embedded charts.
+     */
+    private fun skipToSheet(n: Int) {
+        var depth = 0
+        var count = -1
+        while (true) {
+            when (records.nextRecord() ?: return) {
+                is BOFRecord -> {
+                    if (depth == 0) {
+                        count++
+                    }
+                    depth++
+                    // the first top level substream is workbook globals
+                    if ((depth == 1) && (count == n + 1)) {
+                        return
+                    }
+                }
+
+                is EOFRecord -> depth--
+            }
+        }
+    }
+
+    override fun hasNext(): Boolean {
+        if ((nextRow == null) && !finished) {
+            nextRow = readRow()
+            finished = nextRow == null
+        }
+        return nextRow != null
+    }
+
+    override fun next(): ExcelRow {
+        if (!hasNext()) {
+            throw NoSuchElementException("no more row")
+        }
+        val row = nextRow!!
+        nextRow = null
+        return row
+    }
+
+    override fun close() {
+        input.close()
+    }
+
+    private fun readRow(): ExcelRow? {
+        var depth = 0
+        while (!sheetEnded) {
+            val record = lookahead ?: records.nextRecord()
+            lookahead = null
+            when (record) {
+                null -> sheetEnded = true
+                is BOFRecord -> depth++
+                is EOFRecord -> if (depth == 0) sheetEnded = true else depth--
+                is StringRecord -> pendingString?.let { (row, col) ->
+                    pendingString = null
+                    addCell(row, col, ExcelCell(CellType.STRING, stringValue = record.string))
+                }
+
+                is MulRKRecord -> if (startsNewRow(record.row)) {
+                    lookahead = record
+                    return flushRow()
+                } else {
+                    for (i in 0 until record.numColumns) {
+                        addCell(
+                            record.row, record.firstColumn + i,
+                            workbook.numericCell(record.getRKNumberAt(i), record.getXFAt(i).toInt())
+                        )
+                    }
+                }
+
+                is MulBlankRecord -> if (startsNewRow(record.row)) {
+                    lookahead = record
+                    return flushRow()
+                } else {
+                    for (i in 0 until record.numColumns) {
+                        addCell(record.row, record.firstColumn + i, ExcelCell.BLANK)
+                    }
+                }
+
+                is CellValueRecordInterface -> if (startsNewRow(record.row)) {
+                    lookahead = record as Record
+                    return flushRow()
+                } else {
+                    addCell(record.row, record.column.toInt(), toCell(record))
+                }
+            }
+        }
+        return flushRow()
+    }
+
+    private fun startsNewRow(row: Int): Boolean {
+        return (rowIndex >= 0) && (row != rowIndex)
+    }
+
+    private fun flushRow(): ExcelRow? {
+        if (rowIndex < 0) {
+            return null
+        }
+        val row = ExcelRow(rowIndex, cells)
+        rowIndex = -1
+        cells = mutableListOf()
+        return row
+    }
+
+    private fun addCell(row: Int, col: Int, cell: ExcelCell) {
+        rowIndex = row
+        while (cells.size < col) {
+            cells.add(ExcelCell.BLANK)
+        }
+        if (col < cells.size) {
+            cells[col] = cell
+        } else {
+            cells.add(cell)
+        }
+    }
+
+    /**
+     * Decode a cell record. A formula with string result is blank here, its value comes with the following STRING
+     * record.
+     */
+    private fun toCell(record: CellValueRecordInterface): ExcelCell {
+        return when (record) {
+            is NumberRecord -> workbook.numericCell(record.value, record.xfIndex.toInt())
+            is RKRecord -> workbook.numericCell(record.rkNumber, record.xfIndex.toInt())
+            is LabelSSTRecord -> ExcelCell(CellType.STRING, stringValue = workbook.sharedString(record.sstIndex))
+            is LabelRecord -> ExcelCell(CellType.STRING, stringValue = record.value ?: "")
+            is BoolErrRecord -> if (record.isBoolean) ExcelCell(CellType.BOOLEAN, booleanValue = record.booleanValue)
+            else ExcelCell(CellType.STRING, stringValue = ExcelCell.errorText(record.errorValue.toInt()))
+
+            is FormulaRecord -> when (record.cachedResultTypeEnum) {
+                CellType.NUMERIC -> workbook.numericCell(record.value, record.xfIndex.toInt())
+                CellType.BOOLEAN -> ExcelCell(CellType.BOOLEAN, booleanValue = record.cachedBooleanValue)
+                CellType.ERROR -> ExcelCell(CellType.STRING, stringValue = ExcelCell.errorText(record.cachedErrorValue))
+                CellType.STRING -> {
+                    pendingString = Pair(record.row, record.column.toInt())
+                    ExcelCell.BLANK
+                }
+
+                else -> ExcelCell.BLANK
+            }
+
+            else -> ExcelCell.BLANK
+        }
+    }
+}
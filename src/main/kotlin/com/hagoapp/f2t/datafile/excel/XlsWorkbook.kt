@@ -0,0 +1,187 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import com.hagoapp.f2t.F2TException
+import org.apache.poi.hssf.record.*
+import org.apache.poi.hssf.usermodel.HSSFWorkbook
+import org.apache.poi.poifs.filesystem.POIFSFileSystem
+import org.apache.poi.ss.usermodel.BuiltinFormats
+import java.io.Closeable
+import java.io.File
+import java.io.InputStream
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A xls workbook read as a stream of BIFF records, without building any HSSF workbook model. Only the workbook
+ * globals(sheet list, shared strings, formats and cell styles) are kept in memory, sheets are streamed by
+ * <code>XlsSheetRows</code>. Streams of a file system share its file channel, so a workbook must not stream
+ * several sheets concurrently, use <code>fork</code> to get one per thread instead.
+ *
+ * @param fs    file system of xls file
+ * @param fileName  name of xls file, null if not opened from a file
+ * @param globals   workbook of the same file whose globals are shared, null to parse them
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsWorkbook private constructor(
+    private val fs: POIFSFileSystem,
+    private val fileName: String?,
+    globals: XlsWorkbook?
+) : Closeable {
+
+    /**
+     * Open a xls workbook from its file system.
+     *
+     * @param fs    file system of xls file
+     */
+    constructor(fs: POIFSFileSystem) : this(fs, null, null)
+
+    /**
+     * Open a xls file for reading.
+     *
+     * @param fileName  xls file name
+     */
+    constructor(fileName: String) : this(POIFSFileSystem(File(fileName), true), fileName, null)
+
+    /**
+     * A sheet listed in workbook globals.
+     *
+     * @property name   sheet name
+     * @property bofPosition    offset of the BOF record of sheet in workbook stream
+     */
+    data class SheetEntry(val name: String, val bofPosition: Int)
+
+    private val entryName = HSSFWorkbook.getWorkbookDirEntryName(fs.root)
+    private val sst: SSTRecord?
+    private val formats: Map<Int, String>
+    private val cellFormats: List<Int>
+    private val styles: ConcurrentHashMap<Int, ExcelCellStyle>
+
+    /**
+     * Sheets of workbook in tab order.
+     */
+    val sheets: List<SheetEntry>
+
+    /**
+     * Whether the workbook uses 1904 date windowing.
+     */
+    var isDate1904 = false
+        private set
+
+    /**
+     * Whether the workbook is encrypted, sheets can't be located by offsets then.
+     */
+    var isEncrypted = false
+        private set
+
+    init {
+        if (globals != null) {
+            sheets = globals.sheets
+            sst = globals.sst
+            formats = globals.formats
+            cellFormats = globals.cellFormats
+            styles = globals.styles
+            isDate1904 = globals.isDate1904
+            isEncrypted = globals.isEncrypted
+        } else {
+            val entries = mutableListOf<SheetEntry>()
+            var sstRecord: SSTRecord? = null
+            val formatMap = mutableMapOf<Int, String>()
+            val formatIndexes = mutableListOf<Int>()
+            openStream().use { input ->
+                val records = RecordFactoryInputStream(input, false)
+                while (true) {
+                    when (val record = records.nextRecord() ?: break) {
+                        is BoundSheetRecord -> entries.add(SheetEntry(record.sheetname, record.positionOfBof))
+                        is SSTRecord -> sstRecord = record
+                        is FormatRecord -> formatMap[record.indexCode] = record.formatString
+                        is ExtendedFormatRecord -> formatIndexes.add(record.formatIndex.toInt())
+                        is DateWindow1904Record -> isDate1904 = record.windowing.toInt() == 1
+                        is FilePassRecord -> isEncrypted = true
+                        is EOFRecord -> break
+                    }
+                }
+            }
+            sheets = entries
+            sst = sstRecord
+            formats = formatMap
+            cellFormats = formatIndexes
+            styles = ConcurrentHashMap()
+        }
+    }
+
+    /**
+     * Open the same xls file again with its own file system, sharing globals parsed by this workbook, so that
+     * sheets can be streamed from both workbooks concurrently. The returned workbook is closed by caller.
+     *
+     * @return workbook of the same file
+     */
+    fun fork(): XlsWorkbook {
+        val name = fileName ?: throw IllegalStateException("only workbook opened from a file can be forked")
+        return XlsWorkbook(POIFSFileSystem(File(name), true), name, this)
+    }
+
+    /**
+     * Open the workbook stream from its beginning.
+     *
+     * @return workbook stream
+     */
+    fun openStream(): InputStream {
+        return fs.root.createDocumentInputStream(entryName)
+    }
+
+    /**
+     * Find the index of sheet to read, by index first and then by name. The first sheet is chosen if neither is
+     * given.
+     *
+     * @param sheetIndex    sheet index
+     * @param sheetName sheet name
+     * @return index of sheet
+     * @throws F2TException if the sheet given is not found
+     */
+    fun selectSheet(sheetIndex: Int?, sheetName: String?): Int {
+        return when {
+            sheetIndex != null -> if ((sheetIndex >= 0) && (sheetIndex < sheets.size)) sheetIndex
+            else throw F2TException("sheet index $sheetIndex out of range of ${sheets.size} sheets")
+
+            sheetName != null -> sheets.indexOfFirst { it.name == sheetName }.takeIf { it >= 0 }
+                ?: throw F2TException("sheet $sheetName not found")
+
+            else -> 0
+        }
+    }
+
+    /**
+     * Get a string from shared string table.
+     *
+     * @param index index of string
+     * @return string
+     */
+    fun sharedString(index: Int): String {
+        return sst?.getString(index)?.string ?: ""
+    }
+
+    /**
+     * Create a numeric cell using number format of given cell style.
+     *
+     * @param value numeric value
+     * @param xfIndex   index of cell style
+     * @return cell
+     */
+    fun numericCell(value: Double, xfIndex: Int): ExcelCell {
+        return styles.getOrPut(xfIndex) {
+            val formatIndex = cellFormats.getOrElse(xfIndex) { 0 }
+            val formatString = formats[formatIndex] ?: BuiltinFormats.getBuiltinFormat(formatIndex) ?: "General"
+            ExcelCellStyle(formatIndex, formatString)
+        }.numericCell(value)
+    }
+
+    override fun close() {
+        fs.close()
+    }
+}
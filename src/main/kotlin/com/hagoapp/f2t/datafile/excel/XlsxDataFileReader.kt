@@ -0,0 +1,61 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+/**
+ * Streaming reader for xlsx files. Sheet XML is pulled row by row with StAX, and shared strings and styles are
+ * resolved from the package directly, so that no XSSF workbook model is built.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsxDataFileReader() : StreamingExcelDataFileReader() {
+    private var workbook: XlsxWorkbook? = null
+    private var shared = false
+    private var sheetIndex = 0
+    private var rowCount: Int? = null
+
+    /**
+     * Create a reader of an opened workbook, which is not closed with reader, so that sheets of a workbook can be
+     * read by several readers concurrently.
+     *
+     * @param workbook  opened workbook
+     */
+    constructor(workbook: XlsxWorkbook) : this() {
+        this.workbook = workbook
+        shared = true
+    }
+
+    override fun openWorkbook(fileInfo: FileInfoExcel): Boolean {
+        val wb = workbook ?: XlsxWorkbook(fileInfo.filename!!)
+        workbook = wb
+        if (wb.sheets.isNotEmpty()) {
+            sheetIndex = wb.selectSheet(fileInfo.sheetIndex, fileInfo.sheetName)
+            rowCount = XlsxSheetRows(wb, sheetIndex).use { rows -> rows.dimension?.let { it.last - it.first } }
+        }
+        return wb.isDate1904
+    }
+
+    override fun openRows(): ExcelRowSource? {
+        val wb = workbook!!
+        return if (wb.sheets.isEmpty()) null else XlsxSheetRows(wb, sheetIndex)
+    }
+
+    override fun closeWorkbook() {
+        if (!shared) {
+            workbook?.close()
+        }
+    }
+
+    override fun getRowCount(): Int? {
+        return rowCount
+    }
+
+    override fun getSupportedFileType(): Set<Int> {
+        return setOf(FileInfoExcelX.FILE_TYPE_EXCEL_OPEN_XML)
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import java.io.Closeable
+import java.io.InputStream
+import javax.xml.stream.XMLStreamConstants
+import javax.xml.stream.XMLStreamReader
+
+/**
+ * Shared strings of a xlsx workbook streamed from <code>sharedStrings.xml</code> only as far as the highest index
+ * looked up, so that reading a few cells, like header rows, does not load the whole table. Strings before that index
+ * are kept to serve later lookups.
+ *
+ * @param workbook  workbook of shared strings
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsxSharedStringStream(workbook: XlsxWorkbook) : Closeable {
+    private val input: InputStream? = workbook.openSharedStrings()
+    private val xml: XMLStreamReader? = input?.let { XlsxWorkbook.createXmlReader(it) }
+    private val strings = mutableListOf<String>()
+    private var finished = xml == null
+
+    /**
+     * Get a shared string by index, reading the part forward until it is reached.
+     *
+     * @param index index of shared string
+     * @return string, or empty string if index is beyond the table
+     */
+    operator fun get(index: Int): String {
+        while ((strings.size <= index) && !finished) {
+            val item = readItem()
+            if (item == null) {
+                finished = true
+            } else {
+                strings.add(item)
+            }
+        }
+        return if (index < strings.size) strings[index] else ""
+    }
+
+    private fun readItem(): String? {
+        val xml = this.xml!!
+        var text: StringBuilder? = null
+        var phonetic = 0
+        while (xml.hasNext()) {
+            when (xml.next()) {
+                XMLStreamConstants.START_ELEMENT -> when (xml.localName) {
+                    "si" -> text = StringBuilder()
+                    "rPh" -> phonetic++
+                    "t" -> {
+                        val t = xml.elementText
+                        if (phonetic == 0) {
+                            text?.append(t)
+                        }
+                    }
+                }
+
+                XMLStreamConstants.END_ELEMENT -> when (xml.localName) {
+                    "rPh" -> phonetic--
+                    "si" -> return text?.toString() ?: ""
+                }
+            }
+        }
+        return null
+    }
+
+    override fun close() {
+        xml?.close()
+        input?.close()
+    }
+}
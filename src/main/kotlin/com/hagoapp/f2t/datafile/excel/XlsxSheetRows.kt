@@ -0,0 +1,202 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import org.apache.poi.ss.usermodel.CellType
+import java.io.InputStream
+import javax.xml.stream.XMLStreamConstants
+
+/**
+ * Rows of a xlsx sheet pulled from its XML part one by one using StAX, so that only one row is kept in memory.
+ * Cells referring shared strings and styles are resolved using the workbook.
+ *
+ * @param workbook  workbook of sheet
+ * @param sheetIndex    index of sheet
+ * @param sharedString  lookup of shared strings by index, the whole shared strings table of workbook by default
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsxSheetRows @JvmOverloads constructor(
+    private val workbook: XlsxWorkbook,
+    sheetIndex: Int,
+    private val sharedString: (Int) -> String = { workbook.sharedStrings.getItemAt(it).string }
+) : ExcelRowSource {
+
+    companion object {
+        /**
+         * Get the 0 based column index from a cell reference like <code>AB12</code>.
+         *
+         * @param ref   cell reference
+         * @return column index, or -1 if reference contains no column
+         */
+        @JvmStatic
+        fun columnIndex(ref: String): Int {
+            var col = 0
+            var i = 0
+            while ((i < ref.length) && (ref[i] in 'A'..'Z')) {
+                col = col * 26 + (ref[i] - 'A' + 1)
+                i++
+            }
+            return col - 1
+        }
+
+        /**
+         * Get the 0 based row index from a cell reference like <code>AB12</code>.
+         *
+         * @param ref   cell reference
+         * @return row index, or -1 if reference contains no row
+         */
+        @JvmStatic
+        fun rowIndex(ref: String): Int {
+            val i = ref.indexOfFirst { it in '0'..'9' }
+            return if (i < 0) -1 else ref.substring(i).toInt() - 1
+        }
+    }
+
+    private val input: InputStream = workbook.openSheet(sheetIndex)
+    private val xml = XlsxWorkbook.createXmlReader(input)
+    private var nextRow: ExcelRow? = null
+    private var lastRowIndex = -1
+    private var finished = false
+
+    /**
+     * Range of row indexes from the <code>dimension</code> element of sheet, null if sheet has no dimension.
+     */
+    var dimension: IntRange? = null
+        private set
+
+    init {
+        // the dimension element comes before sheet data
+        while (xml.hasNext()) {
+            if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                continue
+            }
+            if (xml.localName == "dimension") {
+                val ref = XlsxWorkbook.attribute(xml, "ref")
+                if (ref != null) {
+                    val parts = ref.split(":")
+                    val first = rowIndex(parts[0])
+                    val last = if (parts.size > 1) rowIndex(parts[1]) else first
+                    if ((first >= 0) && (last >= first)) {
+                        dimension = first..last
+                    }
+                }
+            } else if (xml.localName == "sheetData") {
+                break
+            }
+        }
+    }
+
+    override fun hasNext(): Boolean {
+        if ((nextRow == null) && !finished) {
+            nextRow = readRow()
+            finished = nextRow == null
+        }
+        return nextRow != null
+    }
+
+    override fun next(): ExcelRow {
+        if (!hasNext()) {
+            throw NoSuchElementException("no more row")
+        }
+        val row = nextRow!!
+        nextRow = null
+        return row
+    }
+
+    override fun close() {
+        xml.close()
+        input.close()
+    }
+
+    private fun readRow(): ExcelRow? {
+        while (xml.hasNext()) {
+            when (xml.next()) {
+                XMLStreamConstants.START_ELEMENT -> if (xml.localName == "row") {
+                    val r = XlsxWorkbook.attribute(xml, "r")
+                    val index = r?.toInt()?.minus(1) ?: (lastRowIndex + 1)
+                    lastRowIndex = index
+                    return ExcelRow(index, readCells())
+                }
+
+                XMLStreamConstants.END_ELEMENT -> if (xml.localName == "sheetData") {
+                    return null
+                }
+            }
+        }
+        return null
+    }
+
+    private fun readCells(): List<ExcelCell> {
+        val cells = mutableListOf<ExcelCell>()
+        while (xml.hasNext()) {
+            when (xml.next()) {
+                XMLStreamConstants.START_ELEMENT -> if (xml.localName == "c") {
+                    val ref = XlsxWorkbook.attribute(xml, "r")
+                    val col = if (ref == null) cells.size else columnIndex(ref)
+                    val cell = readCell()
+                    while (cells.size < col) {
+                        cells.add(ExcelCell.BLANK)
+                    }
+                    if (col < cells.size) {
+                        cells[col] = cell
+                    } else {
+                        cells.add(cell)
+                    }
+                }
+
+                XMLStreamConstants.END_ELEMENT -> if (xml.localName == "row") {
+                    return cells
+                }
+            }
+        }
+        return cells
+    }
+
+    private fun readCell(): ExcelCell {
+        val type = XlsxWorkbook.attribute(xml, "t") ?: "n"
+        val style = XlsxWorkbook.attribute(xml, "s")?.toInt()
+        var value: String? = null
+        var inlineText: StringBuilder? = null
+        var phonetic = 0
+        while (xml.hasNext()) {
+            when (xml.next()) {
+                XMLStreamConstants.START_ELEMENT -> when (xml.localName) {
+                    "v" -> value = xml.elementText
+                    "is" -> inlineText = StringBuilder()
+                    "rPh" -> phonetic++
+                    "t" -> {
+                        val text = xml.elementText
+                        if (phonetic == 0) {
+                            inlineText?.append(text)
+                        }
+                    }
+                }
+
+                XMLStreamConstants.END_ELEMENT -> when (xml.localName) {
+                    "rPh" -> phonetic--
+                    "c" -> return toCell(type, style, value, inlineText?.toString())
+                }
+            }
+        }
+        return ExcelCell.BLANK
+    }
+
+    private fun toCell(type: String, style: Int?, value: String?, inlineText: String?): ExcelCell {
+        return when (type) {
+            "inlineStr" -> ExcelCell(CellType.STRING, stringValue = inlineText ?: value ?: "")
+            "s" -> if (value == null) ExcelCell.BLANK
+            else ExcelCell(CellType.STRING, stringValue = sharedString(value.toInt()))
+
+            "str", "d" -> ExcelCell(CellType.STRING, stringValue = value ?: "")
+            "b" -> if (value == null) ExcelCell.BLANK else ExcelCell(CellType.BOOLEAN, booleanValue = value == "1")
+            "e" -> ExcelCell(CellType.STRING, stringValue = value ?: "")
+            else -> if (value.isNullOrEmpty()) ExcelCell.BLANK
+            else workbook.cellStyle(style ?: 0).numericCell(value.toDouble())
+        }
+    }
+}
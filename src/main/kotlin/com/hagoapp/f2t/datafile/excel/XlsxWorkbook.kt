@@ -0,0 +1,194 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.excel
+
+import com.hagoapp.f2t.F2TException
+import org.apache.poi.openxml4j.opc.OPCPackage
+import org.apache.poi.openxml4j.opc.PackageAccess
+import org.apache.poi.util.XMLHelper
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable
+import org.apache.poi.xssf.eventusermodel.XSSFReader
+import org.apache.poi.xssf.usermodel.XSSFRelation
+import org.apache.poi.xssf.model.StylesTable
+import java.io.Closeable
+import java.io.InputStream
+import java.util.concurrent.ConcurrentHashMap
+import javax.xml.stream.XMLStreamConstants
+import javax.xml.stream.XMLStreamReader
+
+/**
+ * A xlsx workbook opened as a package, without building any workbook model. Only <code>workbook.xml</code> is
+ * parsed when opened; styles and shared strings are loaded on first use, and sheets are streamed by
+ * <code>XlsxSheetRows</code>.
+ *
+ * @param pkg   package of xlsx file
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class XlsxWorkbook(private val pkg: OPCPackage) : Closeable {
+
+    /**
+     * Open a xlsx file for reading.
+     *
+     * @param fileName  xlsx file name
+     */
+    constructor(fileName: String) : this(OPCPackage.open(fileName, PackageAccess.READ))
+
+    /**
+     * A sheet listed in <code>workbook.xml</code>.
+     *
+     * @property name   sheet name
+     * @property relationId id of the relationship from workbook to the sheet part
+     */
+    data class SheetEntry(val name: String, val relationId: String)
+
+    companion object {
+        private val xmlInputFactory = XMLHelper.newXMLInputFactory()
+
+        /**
+         * Create a pull parser for a part of package.
+         *
+         * @param input content of part
+         * @return parser
+         */
+        @JvmStatic
+        fun createXmlReader(input: InputStream): XMLStreamReader {
+            return xmlInputFactory.createXMLStreamReader(input)
+        }
+
+        /**
+         * Find the value of an attribute by its local name, regardless of its namespace.
+         *
+         * @param reader    parser positioned at a start element
+         * @param localName local name of attribute
+         * @return value of attribute, or null if not found
+         */
+        @JvmStatic
+        fun attribute(reader: XMLStreamReader, localName: String): String? {
+            for (i in 0 until reader.attributeCount) {
+                if (reader.getAttributeLocalName(i) == localName) {
+                    return reader.getAttributeValue(i)
+                }
+            }
+            return null
+        }
+    }
+
+    private val reader = try {
+        XSSFReader(pkg)
+    } catch (e: Exception) {
+        pkg.revert()
+        throw e
+    }
+
+    /**
+     * Sheets of workbook in order.
+     */
+    val sheets: List<SheetEntry>
+
+    /**
+     * Whether the workbook uses 1904 date windowing.
+     */
+    val isDate1904: Boolean
+
+    init {
+        val entries = mutableListOf<SheetEntry>()
+        var date1904 = false
+        reader.workbookData.use { input ->
+            val xml = createXmlReader(input)
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue
+                    }
+                    when (xml.localName) {
+                        "workbookPr" -> {
+                            val v = attribute(xml, "date1904")
+                            date1904 = (v == "1") || (v == "true")
+                        }
+
+                        "sheet" -> entries.add(SheetEntry(attribute(xml, "name") ?: "", attribute(xml, "id")!!))
+                    }
+                }
+            } finally {
+                xml.close()
+            }
+        }
+        sheets = entries
+        isDate1904 = date1904
+    }
+
+    /**
+     * Styles of workbook, null if workbook has no styles part.
+     */
+    val styles: StylesTable? by lazy { reader.stylesTable }
+
+    /**
+     * Shared strings of workbook. All strings are kept in memory once loaded, as cells refer to them by index.
+     */
+    val sharedStrings: ReadOnlySharedStringsTable by lazy { ReadOnlySharedStringsTable(pkg, false) }
+
+    /**
+     * Open the shared strings part to be streamed, see <code>XlsxSharedStringStream</code>.
+     *
+     * @return content of shared strings part, null if workbook has no shared strings
+     */
+    fun openSharedStrings(): InputStream? {
+        return pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.contentType).firstOrNull()?.inputStream
+    }
+
+    private val cellStyles = ConcurrentHashMap<Int, ExcelCellStyle>()
+
+    /**
+     * Get the number format of a cell style, resolved once per style.
+     *
+     * @param index index of cell style
+     * @return style
+     */
+    fun cellStyle(index: Int): ExcelCellStyle {
+        return cellStyles.getOrPut(index) {
+            val style = styles?.getStyleAt(index)
+            ExcelCellStyle(style?.dataFormat?.toInt() ?: 0, style?.dataFormatString ?: "General")
+        }
+    }
+
+    /**
+     * Find the index of sheet to read, by index first and then by name. The first sheet is chosen if neither is
+     * given.
+     *
+     * @param sheetIndex    sheet index
+     * @param sheetName sheet name
+     * @return index of sheet
+     * @throws F2TException if the sheet given is not found
+     */
+    fun selectSheet(sheetIndex: Int?, sheetName: String?): Int {
+        return when {
+            sheetIndex != null -> if ((sheetIndex >= 0) && (sheetIndex < sheets.size)) sheetIndex
+            else throw F2TException("sheet index $sheetIndex out of range of ${sheets.size} sheets")
+
+            sheetName != null -> sheets.indexOfFirst { it.name == sheetName }.takeIf { it >= 0 }
+                ?: throw F2TException("sheet $sheetName not found")
+
+            else -> 0
+        }
+    }
+
+    /**
+     * Open the content of a sheet.
+     *
+     * @param index index of sheet
+     * @return content of sheet part
+     */
+    fun openSheet(index: Int): InputStream {
+        return reader.getSheet(sheets[index].relationId)
+    }
+
+    override fun close() {
+        // opened read only, nothing to save
+        pkg.revert()
+    }
+}
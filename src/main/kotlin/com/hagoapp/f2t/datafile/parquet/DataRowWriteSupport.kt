@@ -0,0 +1,127 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import com.hagoapp.f2t.ColumnDefinition
+import com.hagoapp.f2t.DataRow
+import com.hagoapp.f2t.F2TException
+import com.hagoapp.f2t.util.JDBCTypeUtils
+import com.hagoapp.f2t.util.ParquetTypeUtils
+import org.apache.hadoop.conf.Configuration
+import org.apache.parquet.hadoop.ParquetWriter
+import org.apache.parquet.hadoop.api.WriteSupport
+import org.apache.parquet.io.OutputFile
+import org.apache.parquet.io.api.Binary
+import org.apache.parquet.io.api.RecordConsumer
+import org.apache.parquet.schema.MessageType
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName
+import org.apache.parquet.schema.Type.Repetition
+import java.nio.ByteBuffer
+
+/**
+ * The parquet write support writing data rows straight to record consumer of parquet, by writers of values resolved
+ * once per column, so that no intermediate record is created for rows.
+ *
+ * @param schema    parquet schema of file, fields in the same order as cells of rows
+ * @param columns   column definitions, types of which are used to convert values of cells
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class DataRowWriteSupport(
+    private val schema: MessageType,
+    private val columns: List<ColumnDefinition>
+) : WriteSupport<DataRow>() {
+
+    companion object {
+
+        /**
+         * Create a parquet writer of data rows.
+         *
+         * @param columns   column definitions
+         * @param config    config of parquet file
+         * @return writer
+         */
+        @JvmStatic
+        fun createWriter(columns: List<ColumnDefinition>, config: ParquetWriterConfig): ParquetWriter<DataRow> {
+            val schema = ParquetTypeUtils.createMessageType(config.name, columns)
+            val builder = Builder(LocalOutputFile(config.parquetFileName), DataRowWriteSupport(schema, columns))
+                .withCompressionCodec(config.codec)
+                .withRowGroupSize(config.rowGroupSize)
+                .withPageSize(config.pageSize)
+                .withDictionaryEncoding(config.dictionaryEncoding)
+                .withWriterVersion(config.writerVersion)
+            config.columnDictionaryEncoding.forEach { (column, enabled) ->
+                builder.withDictionaryEncoding(column, enabled)
+            }
+            return builder.build()
+        }
+    }
+
+    private class Builder(file: OutputFile, private val writeSupport: DataRowWriteSupport) :
+        ParquetWriter.Builder<DataRow, Builder>(file) {
+
+        override fun self(): Builder {
+            return this
+        }
+
+        override fun getWriteSupport(conf: Configuration?): WriteSupport<DataRow> {
+            return writeSupport
+        }
+    }
+
+    private lateinit var consumer: RecordConsumer
+    private val names = schema.fields.map { it.name }.toTypedArray()
+    private val required = schema.fields.map { it.isRepetition(Repetition.REQUIRED) }.toTypedArray()
+    private val stringWriter = { c: RecordConsumer, v: Any -> c.addBinary(Binary.fromString(v.toString())) }
+    private val binaryWriter = { c: RecordConsumer, v: Any ->
+        c.addBinary(
+            when (v) {
+                is ByteArray -> Binary.fromReusedByteArray(v)
+                is ByteBuffer -> Binary.fromReusedByteBuffer(v)
+                is Binary -> v
+                else -> Binary.fromString(v.toString())
+            }
+        )
+    }
+    private val writers = schema.fields.map { field ->
+        val type = field.asPrimitiveType()
+        when (type.primitiveTypeName) {
+            PrimitiveTypeName.INT32 -> { c: RecordConsumer, v: Any -> c.addInteger((v as Number).toInt()) }
+            PrimitiveTypeName.INT64 -> { c: RecordConsumer, v: Any -> c.addLong((v as Number).toLong()) }
+            PrimitiveTypeName.FLOAT -> { c: RecordConsumer, v: Any -> c.addFloat((v as Number).toFloat()) }
+            PrimitiveTypeName.DOUBLE -> { c: RecordConsumer, v: Any -> c.addDouble((v as Number).toDouble()) }
+            PrimitiveTypeName.BOOLEAN -> { c: RecordConsumer, v: Any -> c.addBoolean(v as Boolean) }
+            else -> if (type.logicalTypeAnnotation == null) binaryWriter else stringWriter
+        }
+    }.toTypedArray()
+
+    override fun init(configuration: Configuration?): WriteContext {
+        return WriteContext(schema, mapOf())
+    }
+
+    override fun prepareForWrite(recordConsumer: RecordConsumer) {
+        consumer = recordConsumer
+    }
+
+    override fun write(record: DataRow) {
+        consumer.startMessage()
+        record.cells.forEachIndexed { i, cell ->
+            // a missing value is written by skipping the field, which is not allowed for required fields
+            val value = JDBCTypeUtils.toTypedValue(cell.data, columns[i].dataType)
+            if (value == null) {
+                if (required[i]) {
+                    throw F2TException("Null-value for required field: ${names[i]}")
+                }
+                return@forEachIndexed
+            }
+            consumer.startField(names[i], i)
+            writers[i](consumer, value)
+            consumer.endField(names[i], i)
+        }
+        consumer.endMessage()
+    }
+}
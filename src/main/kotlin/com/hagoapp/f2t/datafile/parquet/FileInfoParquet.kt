@@ -20,6 +20,16 @@ class FileInfoParquet : FileInfo() {
         const val FILE_TYPE_PARQUET = 4
     }
 
+    /**
+     * Count of rows read from file at a time, rows are served from the block read.
+     */
+    var blockSize: Int = 4096
+
+    /**
+     * Whether to read the next block in a background thread while current block is being consumed.
+     */
+    var prefetch: Boolean = false
+
     override fun getFileTypeValue(): Int {
         return FILE_TYPE_PARQUET
     }
@@ -0,0 +1,160 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.io.InputFile
+import org.apache.parquet.io.SeekableInputStream
+import java.io.EOFException
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+/**
+ * The InputFile implementation over a local file mapped into memory, so that file content is held by OS page cache
+ * instead of Java heap and nothing is read until used. Files larger than 2G are mapped into several slots. Each
+ * stream created has its own position, so that a file can be read by several streams concurrently.
+ *
+ * @param path  path of file
+ * @param slotSize  max size of a mapped slot
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class MappedInputFile @JvmOverloads constructor(
+    private val path: Path,
+    private val slotSize: Int = DEFAULT_SLOT_SIZE
+) : InputFile {
+
+    companion object {
+        private const val DEFAULT_SLOT_SIZE = Int.MAX_VALUE / 2
+    }
+
+    private val length: Long
+    private val slots: Array<MappedByteBuffer>
+
+    init {
+        if (slotSize <= 0) {
+            throw IllegalArgumentException("slot size must be positive")
+        }
+        // mapping stays valid after channel closed
+        FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+            length = channel.size()
+            val slotNum = ((length + slotSize - 1) / slotSize).toInt()
+            slots = Array(slotNum) { i ->
+                val start = i.toLong() * slotSize
+                channel.map(FileChannel.MapMode.READ_ONLY, start, (length - start).coerceAtMost(slotSize.toLong()))
+            }
+        }
+    }
+
+    override fun getLength(): Long {
+        return length
+    }
+
+    override fun newStream(): SeekableInputStream {
+        return MappedSeekableInputStream()
+    }
+
+    override fun toString(): String {
+        return "memory mapped implementation of org.apache.parquet.io.InputFile for $path, size $length"
+    }
+
+    private inner class MappedSeekableInputStream : SeekableInputStream() {
+        private val views = Array<ByteBuffer>(slots.size) { slots[it].duplicate() }
+        private var position = 0L
+
+        override fun getPos(): Long {
+            return position
+        }
+
+        override fun seek(newPos: Long) {
+            if ((newPos > length) || (newPos < 0)) {
+                throw IOException("attempt to seek position $newPos, which exceeds range 0 - $length")
+            }
+            position = newPos
+        }
+
+        override fun read(): Int {
+            if (position >= length) {
+                return -1
+            }
+            val slot = views[(position / slotSize).toInt()]
+            val data = slot.get((position % slotSize).toInt()).toInt() and 0xff
+            position++
+            return data
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (len == 0) {
+                return 0
+            }
+            if (position >= length) {
+                return -1
+            }
+            val n = (length - position).coerceAtMost(len.toLong()).toInt()
+            copy(n) { view, count, copied -> view.get(b, off + copied, count) }
+            return n
+        }
+
+        override fun readFully(bytes: ByteArray) {
+            readFully(bytes, 0, bytes.size)
+        }
+
+        override fun readFully(bytes: ByteArray, start: Int, len: Int) {
+            if (len > length - position) {
+                throw EOFException("EOF encountered, only ${length - position} bytes readable when $len needed")
+            }
+            copy(len) { view, count, copied -> view.get(bytes, start + copied, count) }
+        }
+
+        override fun read(buf: ByteBuffer): Int {
+            if (!buf.hasRemaining()) {
+                return 0
+            }
+            if (position >= length) {
+                return -1
+            }
+            val n = (length - position).coerceAtMost(buf.remaining().toLong()).toInt()
+            copy(n) { view, count, _ -> putSlice(buf, view, count) }
+            return n
+        }
+
+        override fun readFully(buf: ByteBuffer) {
+            val n = buf.remaining()
+            if (n > length - position) {
+                throw EOFException("EOF encountered, only ${length - position} bytes readable when $n needed")
+            }
+            copy(n) { view, count, _ -> putSlice(buf, view, count) }
+        }
+
+        private fun putSlice(target: ByteBuffer, view: ByteBuffer, count: Int) {
+            val limit = view.limit()
+            view.limit(view.position() + count)
+            target.put(view)
+            view.limit(limit)
+        }
+
+        /**
+         * Copy bytes from current position across slots, the view passed is positioned at where to copy.
+         */
+        private fun copy(len: Int, copier: (view: ByteBuffer, count: Int, copied: Int) -> Unit) {
+            var copied = 0
+            while (copied < len) {
+                val slotIndex = (position / slotSize).toInt()
+                val slotPosition = (position % slotSize).toInt()
+                val view = views[slotIndex]
+                val count = (len - copied).coerceAtMost(view.capacity() - slotPosition)
+                view.position(slotPosition)
+                copier(view, count, copied)
+                copied += count
+                position += count
+            }
+        }
+    }
+}
@@ -8,11 +8,17 @@ package com.hagoapp.f2t.datafile.parquet
 
 import com.hagoapp.f2t.ColumnDefinition
 import org.apache.parquet.ParquetReadOptions
+import org.apache.parquet.column.ColumnReader
+import org.apache.parquet.column.impl.ColumnReadStoreImpl
 import org.apache.parquet.column.page.PageReadStore
 import org.apache.parquet.example.data.Group
 import org.apache.parquet.example.data.simple.convert.GroupRecordConverter
+import org.apache.parquet.filter2.compat.FilterCompat
+import org.apache.parquet.filter2.predicate.FilterApi
+import org.apache.parquet.filter2.predicate.FilterPredicate
 import org.apache.parquet.hadoop.ParquetFileReader
 import org.apache.parquet.io.ColumnIOFactory
+import org.apache.parquet.io.InputFile
 import org.apache.parquet.io.MessageColumnIO
 import org.apache.parquet.io.RecordReader
 import org.apache.parquet.schema.LogicalTypeAnnotation.DateLogicalTypeAnnotation
@@ -26,19 +32,20 @@ import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.io.InputStream
 import java.lang.Exception
-import java.lang.reflect.Method
+import java.nio.file.Path
 import java.sql.JDBCType
 import java.util.function.BiConsumer
 import java.util.function.Predicate
 import kotlin.jvm.Throws
+import kotlin.math.min
 
 /**
- * A parquet reader to read data from byte array and stream.
+ * A parquet reader to read data from byte array and stream, or from a local file mapped into memory.
  *
  * @since 0.7.5
  * @author suncjs
  */
-class MemoryParquetReader(input: MemoryInputFile) : Closeable {
+class MemoryParquetReader(private val input: InputFile) : Closeable {
 
     companion object {
 
@@ -57,6 +64,17 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
             return MemoryParquetReader(file)
         }
 
+        /**
+         * Create a reader of a local file mapped into memory, no content is copied into heap.
+         *
+         * @param path  path of parquet file
+         * @return reader
+         */
+        @JvmStatic
+        fun create(path: Path): MemoryParquetReader {
+            return MemoryParquetReader(MappedInputFile(path))
+        }
+
         @JvmStatic
         @Throws(UnsupportedOperationException::class)
         fun mapParquetTypeToJdbcType(parquetType: Type): JDBCType {
@@ -93,34 +111,89 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
         }
     }
 
-    private val reader: ParquetFileReader
+    private var reader: ParquetFileReader
     private val schema: MessageType
     val columns: List<ColumnDefinition>
+
+    /**
+     * Count of rows in file, summed from row counts of row groups in footer, filters are not applied.
+     */
+    val rowCount: Long
     private val columnsSelecting: Array<Boolean>
-    private val columnValueMethods: Array<Method>
-    private var currentRowGroup: PageReadStore
+    private val accessors: Array<ParquetValueAccessor>
+    private var currentRowGroup: PageReadStore? = null
+    private var currentRowGroupIndex = -1
     private val ioFactory = ColumnIOFactory()
-    private var requestedSchema: MessageType
-    private lateinit var groupReader: RecordReader<Group>
+    private lateinit var requestedSchema: MessageType
+    private lateinit var requestedFieldIndexes: IntArray
+    private lateinit var requestedColumns: IntArray
+    private var groupReader: RecordReader<Group>? = null
+    private var groupReaderPosition = 0L
     private lateinit var columnIO: MessageColumnIO
     private lateinit var groupRecordConverter: GroupRecordConverter
     private var rowsReadInGroup = 0L
+    private var columnReaders: List<ColumnReader>? = null
+    private var columnReadersPosition = 0L
+    private lateinit var vectorBuilders: List<ParquetVectorBuilder>
+    private var filter: FilterPredicate? = null
+    private var recordFilter: FilterCompat.Filter = FilterCompat.NOOP
+    private val filterColumns = mutableSetOf<Int>()
 
     init {
-        val opt = ParquetReadOptions.builder().build()
-        reader = ParquetFileReader(input, opt)
+        reader = ParquetFileReader(input, readOptions())
         schema = reader.fileMetaData.schema
+        rowCount = reader.footer.blocks.sumOf { it.rowCount }
         columns = schema.fields.map { fieldToColumn(it) }
-        columnValueMethods = schema.fields.map { t ->
-            val methodName = t.asPrimitiveType().primitiveTypeName.getMethod
-            Group::class.java.getMethod(methodName, Int::class.java, Int::class.java)
-        }.toTypedArray()
+        accessors = schema.fields.map { ParquetValueAccessor.of(it.asPrimitiveType()) }.toTypedArray()
         columnsSelecting = Array(columns.size) { true }
-        currentRowGroup = reader.readNextRowGroup()
-        requestedSchema = schema
         updateRequestedSchema()
     }
 
+    private fun readOptions(): ParquetReadOptions {
+        return ParquetReadOptions.builder()
+            .withRecordFilter(recordFilter)
+            .useStatsFilter(true)
+            .useDictionaryFilter(true)
+            .useColumnIndexFilter(true)
+            .build()
+    }
+
+    /**
+     * Read only rows where a column compares to a value as required, filters added by several calls are all
+     * applied. Filters are pushed down to parquet reading, row groups are skipped by their statistics and
+     * dictionaries, and pages by column indexes before being decompressed, then rows left are filtered when they
+     * are read. Rows read as columnar batches are filtered by pages only, so they may contain rows not matched.
+     * Filters must be added before reading, and input of reader must be able to open several streams, because file
+     * is opened again to apply the filters.
+     *
+     * @param columnName    name of column
+     * @param operator  comparison operator
+     * @param value value to compare with
+     * @return this reader
+     */
+    fun where(columnName: String, operator: ParquetFilterOperator, value: Any?): MemoryParquetReader {
+        val index = columns.indexOfFirst { it.name == columnName }
+        if (index < 0) {
+            throw IllegalArgumentException("column $columnName not existed")
+        }
+        if ((currentRowGroupIndex >= 0) || (currentRowGroup != null)) {
+            throw IllegalStateException("filter must be added before reading")
+        }
+        if (input is MemoryInputFile) {
+            throw UnsupportedOperationException("filter needs an input able to open several streams")
+        }
+        val predicate = operator.predicate(schema.getType(index).asPrimitiveType(), value)
+        val combined = filter?.let { FilterApi.and(it, predicate) } ?: predicate
+        filter = combined
+        recordFilter = FilterCompat.get(combined)
+        filterColumns.add(index)
+        val old = reader
+        reader = ParquetFileReader(input, readOptions())
+        old.close()
+        updateRequestedSchema()
+        return this
+    }
+
     private fun fieldToColumn(type: Type): ParquetColumnDefinition {
         val def = ParquetColumnDefinition()
         def.name = type.name
@@ -134,6 +207,7 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
             columnsSelecting.forEachIndexed { i, _ ->
                 columnsSelecting[i] = names.any { it == columns[i].name }
             }
+            updateRequestedSchema()
         } else {
             logger.warn("null or empty column names provided")
         }
@@ -144,6 +218,7 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
         columnsSelecting.forEachIndexed { i, _ ->
             columnsSelecting[i] = selector.test(columns[i].name)
         }
+        updateRequestedSchema()
         if (columnsSelecting.none { it }) {
             logger.warn("No columns selected by name selector")
         }
@@ -155,6 +230,7 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
             columnsSelecting.forEachIndexed { i, _ ->
                 columnsSelecting[i] = indexes.contains(i)
             }
+            updateRequestedSchema()
         } else {
             logger.warn("null or empty column indexes provided")
         }
@@ -165,6 +241,7 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
         columnsSelecting.forEachIndexed { i, _ ->
             columnsSelecting[i] = selector.test(i)
         }
+        updateRequestedSchema()
         if (columnsSelecting.none { it }) {
             logger.warn("No columns selected by index selector")
         }
@@ -178,20 +255,27 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
     private fun internalRead(rowCount: Int, rowProcessor: BiConsumer<Group, Int>? = null): Int {
         var rowsFetched = 0
         while (rowsFetched < rowCount) {
+            val rowGroup = currentRowGroup
             logger.trace(
                 "row read: {}, row No in group: {}, group count: {}",
                 rowsFetched,
                 rowsReadInGroup,
-                currentRowGroup.rowCount
+                rowGroup?.rowCount
             )
-            if (rowsReadInGroup >= currentRowGroup.rowCount) {
-                currentRowGroup = reader.readNextRowGroup() ?: break
-                buildGroupReader()
+            if ((rowGroup == null) || (rowsReadInGroup >= rowGroup.rowCount)) {
+                if (!nextRowGroup()) {
+                    break
+                }
                 continue
             }
-            val group = groupReader.read()
-            rowsFetched++
+            val group = syncGroupReader().read()
+            groupReaderPosition++
             rowsReadInGroup++
+            // records not matched by filter are read as null
+            if (group == null) {
+                continue
+            }
+            rowsFetched++
             rowProcessor?.accept(group, rowsFetched)
         }
         return rowsFetched
@@ -202,7 +286,7 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
         val consumer: BiConsumer<Group, Int> = BiConsumer<Group, Int> { group, rowNo ->
             for (i in columns.indices) {
                 buffer[(rowNo - 1) * columns.size + i] = if (!columnsSelecting[i]) null
-                else columnValueMethods[i].invoke(group, i, 0)
+                else accessors[i].get(group, requestedFieldIndexes[i])
             }
         }
         val actualRead = internalRead(rowCount, consumer)
@@ -215,15 +299,193 @@ class MemoryParquetReader(input: MemoryInputFile) : Closeable {
         return ret
     }
 
-    private fun updateRequestedSchema() {
-        columnIO = ioFactory.getColumnIO(requestedSchema)
-        groupRecordConverter = GroupRecordConverter(requestedSchema)
-        buildGroupReader()
+    /**
+     * Read rows and pass values of selected columns to consumer, primitive values are not boxed.
+     *
+     * @param rowCount  count of rows to read
+     * @param consumer  consumer of values
+     * @return count of rows actually read
+     */
+    fun read(rowCount: Int, consumer: ParquetRowConsumer): Int {
+        val selected = columns.indices.filter { columnsSelecting[it] }.toIntArray()
+        return internalRead(rowCount) { group, rowNo ->
+            for (i in selected) {
+                accessors[i].accept(group, requestedFieldIndexes[i], i, consumer)
+            }
+            consumer.onRowEnd(rowNo)
+        }
     }
 
-    private fun buildGroupReader() {
-        groupReader = columnIO.getRecordReader(currentRowGroup, groupRecordConverter)
-        rowsReadInGroup = 0L
+    /**
+     * Read values of selected columns as a columnar batch, straight from column readers without assembling records.
+     * A batch never spans row groups, so it contains fewer rows than required at the end of a row group. Batch
+     * reading can be mixed with row reading, both continue from where the other stops.
+     *
+     * @param maxRowCount   max count of rows in batch
+     * @return batch of columns, null if no more rows
+     */
+    fun readBatch(maxRowCount: Int): ParquetColumnBatch? {
+        var rowGroup = currentRowGroup
+        while ((rowGroup == null) || (rowsReadInGroup >= rowGroup.rowCount)) {
+            if (!nextRowGroup()) {
+                return null
+            }
+            rowGroup = currentRowGroup
+        }
+        val readers = syncColumnReaders()
+        val count = min(maxRowCount.toLong(), rowGroup.rowCount - rowsReadInGroup).toInt()
+        val vectors = columns.indices.map { i ->
+            if (!columnsSelecting[i]) {
+                null
+            } else {
+                val columnReader = readers[requestedFieldIndexes[i]]
+                val builder = vectorBuilders[requestedFieldIndexes[i]]
+                val maxDefinitionLevel = columnReader.descriptor.maxDefinitionLevel
+                builder.start(count)
+                repeat(count) {
+                    if (columnReader.currentDefinitionLevel < maxDefinitionLevel) {
+                        builder.addNull()
+                    } else {
+                        columnReader.writeCurrentValueToConverter()
+                    }
+                    columnReader.consume()
+                }
+                builder.build()
+            }
+        }
+        // the column kept in requested schema when nothing is selected
+        readers.forEachIndexed { fieldIndex, columnReader ->
+            if (!columnsSelecting[requestedColumns[fieldIndex]]) {
+                skipValues(columnReader, count.toLong())
+            }
+        }
+        columnReadersPosition += count
+        rowsReadInGroup += count
+        return ParquetColumnBatch(count, vectors)
+    }
+
+    /**
+     * Decode row groups not started yet on a pool of workers, values of selected columns are returned the same as
+     * <code>read</code>. Rows left in the row group being read are not included, they should be read before. This
+     * reader is at end of file afterwards. Input of reader must be able to open several streams, so readers created
+     * from a stream are not supported.
+     *
+     * @param workerCount   count of workers
+     * @param ordered   whether row groups are delivered in file order, or as soon as they are decoded
+     * @return iterator of decoded row groups, should be closed after use
+     */
+    @JvmOverloads
+    fun readRowGroupsInParallel(
+        workerCount: Int = Runtime.getRuntime().availableProcessors(),
+        ordered: Boolean = true
+    ): ParquetParallelReader {
+        if (input is MemoryInputFile) {
+            throw UnsupportedOperationException("parallel read needs an input able to open several streams")
+        }
+        val first = currentRowGroupIndex + 1
+        val rowGroupIndexes = (first until reader.rowGroups.size).toList()
+        currentRowGroupIndex = reader.rowGroups.size - 1
+        currentRowGroup = null
+        groupReader = null
+        columnReaders = null
+        val selecting = columnsSelecting.copyOf()
+        val fieldIndexes = requestedFieldIndexes.copyOf()
+        val decoder: (Group) -> Array<Any?> = { group ->
+            Array(columns.size) { i ->
+                if (!selecting[i]) null else accessors[i].get(group, fieldIndexes[i])
+            }
+        }
+        return ParquetParallelReader(
+            input, readOptions(), schema, requestedSchema, rowGroupIndexes, decoder, workerCount, ordered
+        )
+    }
+
+    /**
+     * Move to next row group having rows matched by filter. Row groups are read by index, as the index of current
+     * row group is needed to read it again, and row groups skipped by filter must be counted.
+     */
+    private fun nextRowGroup(): Boolean {
+        while (currentRowGroupIndex + 1 < reader.rowGroups.size) {
+            currentRowGroupIndex++
+            // null if no page of row group is matched by filter
+            currentRowGroup = reader.readFilteredRowGroup(currentRowGroupIndex) ?: continue
+            rowsReadInGroup = 0L
+            groupReader = null
+            columnReaders = null
+            return true
+        }
+        currentRowGroup = null
+        return false
+    }
+
+    /**
+     * Get the record reader of current row group, positioned at the next row to read.
+     */
+    private fun syncGroupReader(): RecordReader<Group> {
+        var recordReader = groupReader
+        if ((recordReader == null) || (groupReaderPosition > rowsReadInGroup)) {
+            recordReader = columnIO.getRecordReader(currentRowGroup, groupRecordConverter, recordFilter)
+            groupReader = recordReader
+            groupReaderPosition = 0L
+        }
+        while (groupReaderPosition < rowsReadInGroup) {
+            recordReader!!.read()
+            groupReaderPosition++
+        }
+        return recordReader!!
+    }
+
+    /**
+     * Get column readers of current row group in order of requested schema, positioned at the next row to read.
+     */
+    private fun syncColumnReaders(): List<ColumnReader> {
+        var readers = columnReaders
+        if ((readers == null) || (columnReadersPosition > rowsReadInGroup)) {
+            vectorBuilders.forEach { it.reset() }
+            val store = ColumnReadStoreImpl(
+                currentRowGroup, ParquetBatchConverter(vectorBuilders), requestedSchema, reader.fileMetaData.createdBy
+            )
+            readers = requestedSchema.columns.map { store.getColumnReader(it) }
+            columnReaders = readers
+            columnReadersPosition = 0L
+        }
+        readers.forEach { skipValues(it, rowsReadInGroup - columnReadersPosition) }
+        columnReadersPosition = rowsReadInGroup
+        return readers
+    }
+
+    private fun skipValues(columnReader: ColumnReader, count: Long) {
+        val maxDefinitionLevel = columnReader.descriptor.maxDefinitionLevel
+        for (i in 0 until count) {
+            if (columnReader.currentDefinitionLevel == maxDefinitionLevel) {
+                columnReader.skip()
+            }
+            columnReader.consume()
+        }
+    }
+
+    /**
+     * Project the file schema to selected columns, so that chunks of other columns are neither read nor decoded.
+     * The row group being read is read again with new projection, and rows already read in it are skipped.
+     */
+    private fun updateRequestedSchema() {
+        // a message type can't be empty, keep the first column if nothing selected, columns filtered are always read
+        val selected = columns.indices.filter { columnsSelecting[it] || filterColumns.contains(it) }
+            .ifEmpty { listOf(0) }
+        requestedSchema = MessageType(schema.name, selected.map { schema.getType(it) })
+        requestedFieldIndexes = IntArray(columns.size) { -1 }
+        selected.forEachIndexed { fieldIndex, i -> requestedFieldIndexes[i] = fieldIndex }
+        requestedColumns = selected.toIntArray()
+        reader.setRequestedSchema(requestedSchema)
+        columnIO = ioFactory.getColumnIO(requestedSchema, schema)
+        groupRecordConverter = GroupRecordConverter(requestedSchema)
+        vectorBuilders = requestedSchema.fields.map { ParquetVectorBuilder.of(it.asPrimitiveType()) }
+        groupReader = null
+        columnReaders = null
+        val rowGroup = currentRowGroup
+        if ((rowGroup != null) && (rowsReadInGroup < rowGroup.rowCount)) {
+            currentRowGroup = reader.readFilteredRowGroup(currentRowGroupIndex)
+        }
     }
 
     override fun close() {
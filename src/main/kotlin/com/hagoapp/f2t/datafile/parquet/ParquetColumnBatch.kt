@@ -0,0 +1,20 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+/**
+ * A batch of rows read from parquet in columnar form.
+ *
+ * @property rowCount   count of rows in batch
+ * @property vectors    values of columns in order of file schema, null for columns not selected
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ParquetColumnBatch(
+    val rowCount: Int,
+    val vectors: List<ParquetColumnVector?>
+)
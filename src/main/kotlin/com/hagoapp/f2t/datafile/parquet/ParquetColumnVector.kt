@@ -0,0 +1,79 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.io.api.Binary
+import java.util.BitSet
+
+/**
+ * Values of a column in a batch, kept in primitive arrays. Null values are marked in a bitmap built from definition
+ * levels, values at their positions are undefined.
+ *
+ * @property size   count of values
+ * @property nulls  bitmap of null values
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+abstract class ParquetColumnVector(val size: Int, val nulls: BitSet) {
+
+    /**
+     * Whether a value is null.
+     *
+     * @param index index of value
+     * @return true if null
+     */
+    fun isNull(index: Int): Boolean {
+        return nulls.get(index)
+    }
+
+    /**
+     * Get a value boxed, for consumers not dealing with primitive arrays.
+     *
+     * @param index index of value
+     * @return value, or null
+     */
+    fun get(index: Int): Any? {
+        return if (isNull(index)) null else getValue(index)
+    }
+
+    protected abstract fun getValue(index: Int): Any
+}
+
+class IntColumnVector(size: Int, nulls: BitSet, val values: IntArray) : ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = values[index]
+}
+
+class LongColumnVector(size: Int, nulls: BitSet, val values: LongArray) : ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = values[index]
+}
+
+class FloatColumnVector(size: Int, nulls: BitSet, val values: FloatArray) : ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = values[index]
+}
+
+class DoubleColumnVector(size: Int, nulls: BitSet, val values: DoubleArray) : ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = values[index]
+}
+
+class BooleanColumnVector(size: Int, nulls: BitSet, val values: BooleanArray) : ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = values[index]
+}
+
+class BinaryColumnVector(size: Int, nulls: BitSet, val values: Array<Binary?>) : ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = values[index]!!
+}
+
+/**
+ * Dictionary encoded strings, each string of dictionary is decoded once for the whole column chunk.
+ *
+ * @property ids    index of value in dictionary
+ * @property dictionary strings
+ */
+class StringColumnVector(size: Int, nulls: BitSet, val ids: IntArray, val dictionary: List<String>) :
+    ParquetColumnVector(size, nulls) {
+    override fun getValue(index: Int): Any = dictionary[ids[index]]
+}
@@ -13,12 +13,17 @@ import com.hagoapp.f2t.datafile.FileColumnTypeDeterminer
 import com.hagoapp.f2t.datafile.FileInfo
 import com.hagoapp.f2t.datafile.FileTypeDeterminer
 import com.hagoapp.f2t.datafile.Reader
+import org.apache.parquet.io.api.Binary
 import org.slf4j.LoggerFactory
 import java.io.File
-import java.io.FileInputStream
 import java.io.FileNotFoundException
 import java.io.IOException
 import java.util.NoSuchElementException
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
 import kotlin.jvm.Throws
 
 /**
@@ -29,13 +34,69 @@ class ParquetDataFileReader : Reader {
 
     private val logger = LoggerFactory.getLogger(ParquetDataFileReader::class.java)
     private lateinit var info: FileInfoParquet
-    private lateinit var fis: FileInputStream
     private lateinit var reader: MemoryParquetReader
     private lateinit var columns: List<FileColumnDefinition>
     private var defaultDeterminer = FileTypeDeterminer(FileColumnTypeDeterminer.LeastTypeDeterminer)
-    private var currentRow: Array<Any?>? = null
+    private var block: RowBlock? = null
+    private var spareBlock: RowBlock? = null
+    private var blockPosition = 0
+    private var prefetcher: ExecutorService? = null
+    private var pendingBlock: Future<RowBlock>? = null
     private var rowNo = 0L
 
+    /**
+     * Reusable buffer of rows read at a time.
+     */
+    private class RowBlock(size: Int, columnCount: Int) : ParquetRowConsumer {
+        val rows = Array(size) { arrayOfNulls<Any?>(columnCount) }
+        var count = 0
+        private var row = rows[0]
+
+        fun fill(reader: MemoryParquetReader): RowBlock {
+            row = rows[0]
+            count = reader.read(rows.size, this)
+            return this
+        }
+
+        override fun onNull(column: Int) {
+            row[column] = null
+        }
+
+        override fun onInt(column: Int, value: Int) {
+            row[column] = value
+        }
+
+        override fun onLong(column: Int, value: Long) {
+            row[column] = value
+        }
+
+        override fun onFloat(column: Int, value: Float) {
+            row[column] = value
+        }
+
+        override fun onDouble(column: Int, value: Double) {
+            row[column] = value
+        }
+
+        override fun onBoolean(column: Int, value: Boolean) {
+            row[column] = value
+        }
+
+        override fun onString(column: Int, value: String) {
+            row[column] = value
+        }
+
+        override fun onBinary(column: Int, value: Binary) {
+            row[column] = value
+        }
+
+        override fun onRowEnd(rowNo: Int) {
+            if (rowNo < rows.size) {
+                row = rows[rowNo]
+            }
+        }
+    }
+
     @Throws(IOException::class)
     override fun open(fileInfo: FileInfo) {
         if (fileInfo !is FileInfoParquet) {
@@ -46,15 +107,56 @@ class ParquetDataFileReader : Reader {
         if (!f.exists()) {
             throw FileNotFoundException("${info.filename} not found")
         }
-        val size = f.length()
-        fis = FileInputStream(f)
-        reader = MemoryParquetReader.create(fis, size)
-        val lines = reader.read(1)
-        currentRow = if (lines.isNotEmpty()) lines[0] else null
+        reader = MemoryParquetReader.create(f.toPath())
+        val blockSize = info.blockSize.coerceAtLeast(1)
+        block = RowBlock(blockSize, reader.columns.size).fill(reader)
+        if (info.prefetch) {
+            spareBlock = RowBlock(blockSize, reader.columns.size)
+            prefetcher = Executors.newSingleThreadExecutor { r ->
+                val thread = Thread(r, "parquet-prefetch")
+                thread.isDaemon = true
+                thread
+            }
+            prefetchNextBlock()
+        }
+    }
+
+    private fun prefetchNextBlock() {
+        val spare = spareBlock ?: return
+        spareBlock = null
+        pendingBlock = prefetcher!!.submit(Callable { spare.fill(reader) })
+    }
+
+    /**
+     * Make sure current block has rows unread, false is returned if no more rows in file.
+     */
+    private fun ensureBlock(): Boolean {
+        val current = block ?: return false
+        if (blockPosition < current.count) {
+            return true
+        }
+        if (current.count < current.rows.size) {
+            // a partial block means end of file
+            block = null
+            return false
+        }
+        val pending = pendingBlock
+        val next = if (pending == null) {
+            current.fill(reader)
+        } else {
+            val fetched = pending.get()
+            spareBlock = current
+            prefetchNextBlock()
+            fetched
+        }
+        block = next
+        blockPosition = 0
+        return next.count > 0
     }
 
     override fun getRowCount(): Int? {
-        return 0
+        // exact count from footer, known once file is opened
+        return if (!this::reader.isInitialized || (reader.rowCount > Int.MAX_VALUE)) null else reader.rowCount.toInt()
     }
 
     override fun findColumns(): List<FileColumnDefinition> {
@@ -88,33 +190,32 @@ class ParquetDataFileReader : Reader {
 
     override fun close() {
         try {
-            reader.close()
-        } catch (e: Exception) {
-            logger.error("close parquet reader error: {}", e.message)
+            prefetcher?.shutdown()
+            // a block being read must end before reader is closed
+            prefetcher?.awaitTermination(1, TimeUnit.MINUTES)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
         }
         try {
-            fis.close()
+            reader.close()
         } catch (e: Exception) {
-            logger.error("close parquet file error: {}", e.message)
+            logger.error("close parquet reader error: {}", e.message)
         }
     }
 
     override fun hasNext(): Boolean {
-        return currentRow != null
+        return ensureBlock()
     }
 
     override fun next(): DataRow {
-        val ret = currentRow ?: throw NoSuchElementException("End of iteration of parquet records")
-        val lines = reader.read(1)
-        if (lines.isNotEmpty()) {
-            currentRow = lines[0]
-            rowNo++
-        } else {
-            currentRow = null
+        if (!ensureBlock()) {
+            throw NoSuchElementException("End of iteration of parquet records")
         }
-        val cells = ret.mapIndexed { index, cell ->
+        val values = block!!.rows[blockPosition++]
+        val cells = values.mapIndexed { index, cell ->
             DataCell(cell, index)
         }
-        return DataRow(rowNo, cells)
+        // rows are numbered from 0, the same as csv and excel readers
+        return DataRow(rowNo++, cells)
     }
 }
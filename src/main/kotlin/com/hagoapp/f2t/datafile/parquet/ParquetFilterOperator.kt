@@ -0,0 +1,80 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.filter2.predicate.FilterApi
+import org.apache.parquet.filter2.predicate.FilterPredicate
+import org.apache.parquet.filter2.predicate.Operators
+import org.apache.parquet.io.api.Binary
+import org.apache.parquet.schema.PrimitiveType
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName
+
+/**
+ * Comparison operators of filters pushed down to parquet reading, see <code>MemoryParquetReader.where</code>.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+enum class ParquetFilterOperator {
+    EQ, NOT_EQ, LT, LT_EQ, GT, GT_EQ;
+
+    /**
+     * Create the parquet filter predicate comparing a column with a value. Value is converted to the physical type
+     * of column, strings are compared as UTF-8 binaries. Only <code>EQ</code> and <code>NOT_EQ</code> are allowed
+     * for null values and boolean columns.
+     *
+     * @param type  parquet type of column
+     * @param value value to compare with
+     * @return filter predicate
+     */
+    fun predicate(type: PrimitiveType, value: Any?): FilterPredicate {
+        val path = type.name
+        return when (type.primitiveTypeName) {
+            PrimitiveTypeName.INT32 -> compare(FilterApi.intColumn(path), (value as Number?)?.toInt())
+            PrimitiveTypeName.INT64 -> compare(FilterApi.longColumn(path), (value as Number?)?.toLong())
+            PrimitiveTypeName.FLOAT -> compare(FilterApi.floatColumn(path), (value as Number?)?.toFloat())
+            PrimitiveTypeName.DOUBLE -> compare(FilterApi.doubleColumn(path), (value as Number?)?.toDouble())
+            PrimitiveTypeName.BOOLEAN -> equality(FilterApi.booleanColumn(path), value as Boolean?)
+            PrimitiveTypeName.BINARY, PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY -> {
+                val binary = when (value) {
+                    null -> null
+                    is Binary -> value
+                    is ByteArray -> Binary.fromConstantByteArray(value)
+                    else -> Binary.fromString(value.toString())
+                }
+                compare(FilterApi.binaryColumn(path), binary)
+            }
+
+            else -> throw UnsupportedOperationException("filter on column $path of type $type is not supported")
+        }
+    }
+
+    private fun <T : Comparable<T>, C> compare(column: C, value: T?): FilterPredicate
+            where C : Operators.Column<T>, C : Operators.SupportsLtGt {
+        return when (this) {
+            EQ, NOT_EQ -> equality(column, value)
+            else -> {
+                value ?: throw IllegalArgumentException("null can only be compared by EQ or NOT_EQ")
+                when (this) {
+                    LT -> FilterApi.lt(column, value)
+                    LT_EQ -> FilterApi.ltEq(column, value)
+                    GT -> FilterApi.gt(column, value)
+                    else -> FilterApi.gtEq(column, value)
+                }
+            }
+        }
+    }
+
+    private fun <T : Comparable<T>, C> equality(column: C, value: T?): FilterPredicate
+            where C : Operators.Column<T>, C : Operators.SupportsEqNotEq {
+        return when (this) {
+            EQ -> FilterApi.eq(column, value)
+            NOT_EQ -> FilterApi.notEq(column, value)
+            else -> throw UnsupportedOperationException("$this is not supported by column ${column.columnPath}")
+        }
+    }
+}
@@ -9,15 +9,7 @@ package com.hagoapp.f2t.datafile.parquet
 import com.hagoapp.f2t.ColumnDefinition
 import com.hagoapp.f2t.DataRow
 import com.hagoapp.f2t.TableDefinition
-import com.hagoapp.f2t.datafile.AvroField
-import com.hagoapp.f2t.datafile.SimpleAvroSchema
-import com.hagoapp.f2t.util.JDBCTypeUtils
-import com.hagoapp.f2t.util.ParquetTypeUtils
-import org.apache.avro.Schema
-import org.apache.avro.generic.GenericData
-import org.apache.parquet.avro.AvroParquetWriter
 import org.apache.parquet.hadoop.ParquetWriter
-import org.slf4j.LoggerFactory
 import java.io.Closeable
 
 /**
@@ -72,38 +64,11 @@ class ParquetIteratorWriter private constructor(
         }
     }
 
-    private val schema: SimpleAvroSchema = SimpleAvroSchema()
-    private val avroSchema: Schema
-    private val writer: ParquetWriter<GenericData.Record>
-    private val logger = LoggerFactory.getLogger(ParquetIteratorWriter::class.java)
-
-    init {
-        schema.type = "record"
-        schema.name = config.name
-        schema.fields = schemaDefinition.columns.map { col ->
-            val field = AvroField()
-            field.name = col.name
-            field.type = ParquetTypeUtils.mapToAvroType(col.dataType)
-            field
-        }
-        val f = LocalOutputFile(config.parquetFileName)
-        val schemaValue = schema.toJson()
-        avroSchema = Schema.Parser().parse(schemaValue)
-        writer = AvroParquetWriter.builder<GenericData.Record>(f).withSchema(avroSchema)
-            .build()
-    }
+    private val writer: ParquetWriter<DataRow> = DataRowWriteSupport.createWriter(schemaDefinition.columns, config)
 
     fun write() {
         while (rowDataFeeder.hasNext()) {
-            val row = rowDataFeeder.next()
-            val record = GenericData.Record(avroSchema)
-            row.cells.forEachIndexed { i, cell ->
-                val colDefinition = schemaDefinition.columns[i]
-                val col = colDefinition.name
-                logger.trace("write data: {}", cell.data)
-                record.put(col, JDBCTypeUtils.toTypedValue(cell.data, colDefinition.dataType))
-            }
-            writer.write(record)
+            writer.write(rowDataFeeder.next())
         }
     }
 
@@ -0,0 +1,160 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.ParquetReadOptions
+import org.apache.parquet.example.data.Group
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter
+import org.apache.parquet.hadoop.ParquetFileReader
+import org.apache.parquet.io.ColumnIOFactory
+import org.apache.parquet.io.InputFile
+import org.apache.parquet.schema.MessageType
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.io.IOException
+import java.util.LinkedList
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Rows of a parquet row group decoded by <code>ParquetParallelReader</code>.
+ *
+ * @property index  index of row group in file
+ * @property rows   rows of row group, values in order of file schema, null for columns not selected
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ParquetRowGroupRows(
+    val index: Int,
+    val rows: Array<Array<Any?>>
+)
+
+/**
+ * Decode row groups of a parquet file on a pool of workers, each worker reads the shared input through its own
+ * <code>ParquetFileReader</code>, so the input must be able to open several independent streams, like
+ * <code>MappedInputFile</code>. Row groups are delivered either in file order, in which case decoded row groups
+ * wait in a reorder buffer until all row groups before them are delivered, or in order of completion. At most 2
+ * row groups per worker are decoded ahead of the caller to keep memory bounded.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class ParquetParallelReader internal constructor(
+    private val input: InputFile,
+    private val options: ParquetReadOptions,
+    private val schema: MessageType,
+    private val requestedSchema: MessageType,
+    private val rowGroupIndexes: List<Int>,
+    private val rowDecoder: (Group) -> Array<Any?>,
+    workerCount: Int,
+    private val ordered: Boolean
+) : Iterator<ParquetRowGroupRows>, Closeable {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(ParquetParallelReader::class.java)
+        private val threadNo = AtomicInteger()
+    }
+
+    private val workers: ExecutorService = Executors.newFixedThreadPool(workerCount.coerceAtLeast(1)) { r ->
+        val thread = Thread(r, "parquet-row-group-${threadNo.incrementAndGet()}")
+        thread.isDaemon = true
+        thread
+    }
+    private val completion = ExecutorCompletionService<ParquetRowGroupRows>(workers)
+    private val pending = LinkedList<Future<ParquetRowGroupRows>>()
+    private val openedReaders = ConcurrentLinkedQueue<ParquetFileReader>()
+    private val workerReader = ThreadLocal.withInitial {
+        val reader = ParquetFileReader(input, options)
+        reader.setRequestedSchema(requestedSchema)
+        openedReaders.add(reader)
+        reader
+    }
+    private val window = workerCount.coerceAtLeast(1) * 2
+    private var submitted = 0
+    private var delivered = 0
+
+    init {
+        while ((submitted < rowGroupIndexes.size) && (submitted < window)) {
+            submitNext()
+        }
+    }
+
+    private fun submitNext() {
+        val index = rowGroupIndexes[submitted++]
+        val task = Callable { decode(index) }
+        // row groups in order are never taken from completion queue, so they are not queued there
+        pending.add(if (ordered) workers.submit(task) else completion.submit(task))
+    }
+
+    private fun decode(index: Int): ParquetRowGroupRows {
+        // null if no page of row group is matched by filter
+        val pages = workerReader.get().readFilteredRowGroup(index) ?: return ParquetRowGroupRows(index, arrayOf())
+        val columnIO = ColumnIOFactory().getColumnIO(requestedSchema, schema)
+        val recordReader = columnIO.getRecordReader(pages, GroupRecordConverter(requestedSchema), options.recordFilter)
+        val rows = ArrayList<Array<Any?>>(pages.rowCount.toInt())
+        for (i in 0 until pages.rowCount) {
+            // records not matched by filter are read as null
+            recordReader.read()?.let { rows.add(rowDecoder(it)) }
+        }
+        return ParquetRowGroupRows(index, rows.toTypedArray())
+    }
+
+    override fun hasNext(): Boolean {
+        return delivered < rowGroupIndexes.size
+    }
+
+    /**
+     * Get next decoded row group, waiting for it if not decoded yet.
+     *
+     * @return rows of row group
+     */
+    override fun next(): ParquetRowGroupRows {
+        if (!hasNext()) {
+            throw NoSuchElementException("no more row group")
+        }
+        val future = if (ordered) {
+            pending.removeFirst()
+        } else {
+            completion.take().also { pending.remove(it) }
+        }
+        val rows = try {
+            future.get()
+        } catch (e: ExecutionException) {
+            throw IOException("decode parquet row group failed", e.cause)
+        }
+        delivered++
+        if (submitted < rowGroupIndexes.size) {
+            submitNext()
+        }
+        return rows
+    }
+
+    override fun close() {
+        pending.forEach { it.cancel(false) }
+        workers.shutdown()
+        try {
+            // readers must not be closed while a row group is being decoded with them
+            workers.awaitTermination(1, TimeUnit.MINUTES)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+        openedReaders.forEach {
+            try {
+                it.close()
+            } catch (e: Exception) {
+                logger.error("close parquet reader error: {}", e.message)
+            }
+        }
+    }
+}
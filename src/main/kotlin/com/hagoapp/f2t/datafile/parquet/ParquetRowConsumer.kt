@@ -0,0 +1,34 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.io.api.Binary
+
+/**
+ * Receiver of typed values of rows read from parquet, so that primitive values are passed without boxing. Only
+ * selected columns are passed, columns are identified by their indexes in file schema.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+interface ParquetRowConsumer {
+    fun onNull(column: Int)
+    fun onInt(column: Int, value: Int)
+    fun onLong(column: Int, value: Long)
+    fun onFloat(column: Int, value: Float)
+    fun onDouble(column: Int, value: Double)
+    fun onBoolean(column: Int, value: Boolean)
+    fun onString(column: Int, value: String)
+    fun onBinary(column: Int, value: Binary)
+
+    /**
+     * Called after all values of a row are passed.
+     *
+     * @param rowNo 1 based number of row in current read
+     */
+    fun onRowEnd(rowNo: Int)
+}
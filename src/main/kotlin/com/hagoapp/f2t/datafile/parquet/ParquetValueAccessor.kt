@@ -0,0 +1,129 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.example.data.Group
+import org.apache.parquet.schema.LogicalTypeAnnotation.EnumLogicalTypeAnnotation
+import org.apache.parquet.schema.LogicalTypeAnnotation.JsonLogicalTypeAnnotation
+import org.apache.parquet.schema.LogicalTypeAnnotation.StringLogicalTypeAnnotation
+import org.apache.parquet.schema.PrimitiveType
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName
+
+/**
+ * Typed access to value of a column in a record, resolved once per schema instead of looking up the getter of
+ * <code>Group</code> for every cell. Missing values of optional columns are read as null.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+abstract class ParquetValueAccessor {
+
+    companion object {
+        /**
+         * Create the accessor of a column.
+         *
+         * @param type  parquet type of column
+         * @return accessor
+         */
+        @JvmStatic
+        fun of(type: PrimitiveType): ParquetValueAccessor {
+            return when (type.primitiveTypeName) {
+                PrimitiveTypeName.INT32 -> IntAccessor
+                PrimitiveTypeName.INT64 -> LongAccessor
+                PrimitiveTypeName.FLOAT -> FloatAccessor
+                PrimitiveTypeName.DOUBLE -> DoubleAccessor
+                PrimitiveTypeName.BOOLEAN -> BooleanAccessor
+                PrimitiveTypeName.INT96 -> Int96Accessor
+                else -> when (type.logicalTypeAnnotation) {
+                    is StringLogicalTypeAnnotation, is EnumLogicalTypeAnnotation, is JsonLogicalTypeAnnotation ->
+                        StringAccessor
+
+                    else -> BinaryAccessor
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the value of a field.
+     *
+     * @param group record
+     * @param field index of field in record
+     * @return value, null if missing
+     */
+    fun get(group: Group, field: Int): Any? {
+        return if (group.getFieldRepetitionCount(field) == 0) null else getValue(group, field)
+    }
+
+    /**
+     * Pass the value of a field to consumer without boxing.
+     *
+     * @param group record
+     * @param field index of field in record
+     * @param column    index of column passed to consumer
+     * @param consumer  consumer
+     */
+    fun accept(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) {
+        if (group.getFieldRepetitionCount(field) == 0) {
+            consumer.onNull(column)
+        } else {
+            acceptValue(group, field, column, consumer)
+        }
+    }
+
+    protected abstract fun getValue(group: Group, field: Int): Any
+
+    protected abstract fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer)
+
+    private object IntAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getInteger(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onInt(column, group.getInteger(field, 0))
+    }
+
+    private object LongAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getLong(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onLong(column, group.getLong(field, 0))
+    }
+
+    private object FloatAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getFloat(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onFloat(column, group.getFloat(field, 0))
+    }
+
+    private object DoubleAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getDouble(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onDouble(column, group.getDouble(field, 0))
+    }
+
+    private object BooleanAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getBoolean(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onBoolean(column, group.getBoolean(field, 0))
+    }
+
+    private object Int96Accessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getInt96(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onBinary(column, group.getInt96(field, 0))
+    }
+
+    private object StringAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getString(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onString(column, group.getString(field, 0))
+    }
+
+    private object BinaryAccessor : ParquetValueAccessor() {
+        override fun getValue(group: Group, field: Int): Any = group.getBinary(field, 0)
+        override fun acceptValue(group: Group, field: Int, column: Int, consumer: ParquetRowConsumer) =
+            consumer.onBinary(column, group.getBinary(field, 0))
+    }
+}
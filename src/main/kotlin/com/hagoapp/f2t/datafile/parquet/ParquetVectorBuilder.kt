@@ -0,0 +1,225 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.datafile.parquet
+
+import org.apache.parquet.column.Dictionary
+import org.apache.parquet.io.api.Binary
+import org.apache.parquet.io.api.Converter
+import org.apache.parquet.io.api.GroupConverter
+import org.apache.parquet.io.api.PrimitiveConverter
+import org.apache.parquet.schema.LogicalTypeAnnotation.EnumLogicalTypeAnnotation
+import org.apache.parquet.schema.LogicalTypeAnnotation.JsonLogicalTypeAnnotation
+import org.apache.parquet.schema.LogicalTypeAnnotation.StringLogicalTypeAnnotation
+import org.apache.parquet.schema.PrimitiveType
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName
+import java.util.BitSet
+
+/**
+ * Converter collecting values written by a column reader into a column vector of a batch.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+internal abstract class ParquetVectorBuilder : PrimitiveConverter() {
+
+    companion object {
+        /**
+         * Create the builder of a column.
+         *
+         * @param type  parquet type of column
+         * @return builder
+         */
+        fun of(type: PrimitiveType): ParquetVectorBuilder {
+            return when (type.primitiveTypeName) {
+                PrimitiveTypeName.INT32 -> IntVectorBuilder()
+                PrimitiveTypeName.INT64 -> LongVectorBuilder()
+                PrimitiveTypeName.FLOAT -> FloatVectorBuilder()
+                PrimitiveTypeName.DOUBLE -> DoubleVectorBuilder()
+                PrimitiveTypeName.BOOLEAN -> BooleanVectorBuilder()
+                PrimitiveTypeName.INT96 -> BinaryVectorBuilder()
+                else -> when (type.logicalTypeAnnotation) {
+                    is StringLogicalTypeAnnotation, is EnumLogicalTypeAnnotation, is JsonLogicalTypeAnnotation ->
+                        StringVectorBuilder()
+
+                    else -> BinaryVectorBuilder()
+                }
+            }
+        }
+    }
+
+    protected var size = 0
+    protected var nulls = BitSet()
+
+    /**
+     * Called before a new column chunk is read.
+     */
+    open fun reset() {
+        //
+    }
+
+    /**
+     * Start a new vector.
+     *
+     * @param capacity  count of values of vector
+     */
+    open fun start(capacity: Int) {
+        size = 0
+        nulls = BitSet(capacity)
+    }
+
+    fun addNull() {
+        nulls.set(size)
+        size++
+    }
+
+    abstract fun build(): ParquetColumnVector
+}
+
+/**
+ * Root converter of a batch, whose fields are builders of columns in requested schema.
+ */
+internal class ParquetBatchConverter(private val builders: List<ParquetVectorBuilder>) : GroupConverter() {
+    override fun getConverter(fieldIndex: Int): Converter = builders[fieldIndex]
+
+    override fun start() {
+        //
+    }
+
+    override fun end() {
+        //
+    }
+}
+
+private class IntVectorBuilder : ParquetVectorBuilder() {
+    private var values = IntArray(0)
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        values = IntArray(capacity)
+    }
+
+    override fun addInt(value: Int) {
+        values[size++] = value
+    }
+
+    override fun build(): ParquetColumnVector = IntColumnVector(size, nulls, values)
+}
+
+private class LongVectorBuilder : ParquetVectorBuilder() {
+    private var values = LongArray(0)
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        values = LongArray(capacity)
+    }
+
+    override fun addLong(value: Long) {
+        values[size++] = value
+    }
+
+    override fun build(): ParquetColumnVector = LongColumnVector(size, nulls, values)
+}
+
+private class FloatVectorBuilder : ParquetVectorBuilder() {
+    private var values = FloatArray(0)
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        values = FloatArray(capacity)
+    }
+
+    override fun addFloat(value: Float) {
+        values[size++] = value
+    }
+
+    override fun build(): ParquetColumnVector = FloatColumnVector(size, nulls, values)
+}
+
+private class DoubleVectorBuilder : ParquetVectorBuilder() {
+    private var values = DoubleArray(0)
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        values = DoubleArray(capacity)
+    }
+
+    override fun addDouble(value: Double) {
+        values[size++] = value
+    }
+
+    override fun build(): ParquetColumnVector = DoubleColumnVector(size, nulls, values)
+}
+
+private class BooleanVectorBuilder : ParquetVectorBuilder() {
+    private var values = BooleanArray(0)
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        values = BooleanArray(capacity)
+    }
+
+    override fun addBoolean(value: Boolean) {
+        values[size++] = value
+    }
+
+    override fun build(): ParquetColumnVector = BooleanColumnVector(size, nulls, values)
+}
+
+private class BinaryVectorBuilder : ParquetVectorBuilder() {
+    private var values = arrayOf<Binary?>()
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        values = arrayOfNulls(capacity)
+    }
+
+    override fun addBinary(value: Binary) {
+        // values may be backed by buffers reused by reader
+        values[size++] = value.copy()
+    }
+
+    override fun build(): ParquetColumnVector = BinaryColumnVector(size, nulls, values)
+}
+
+/**
+ * Strings of dictionary encoded pages refer to the dictionary of column chunk, which is decoded once. Strings of
+ * plain pages are appended to the dictionary of vector.
+ */
+private class StringVectorBuilder : ParquetVectorBuilder() {
+    private var chunkDictionary = listOf<String>()
+    private var extra = mutableListOf<String>()
+    private var ids = IntArray(0)
+
+    override fun reset() {
+        chunkDictionary = listOf()
+    }
+
+    override fun start(capacity: Int) {
+        super.start(capacity)
+        ids = IntArray(capacity)
+        extra = mutableListOf()
+    }
+
+    override fun hasDictionarySupport(): Boolean = true
+
+    override fun setDictionary(dictionary: Dictionary) {
+        chunkDictionary = (0..dictionary.maxId).map { dictionary.decodeToBinary(it).toStringUsingUTF8() }
+    }
+
+    override fun addValueFromDictionary(dictionaryId: Int) {
+        ids[size++] = dictionaryId
+    }
+
+    override fun addBinary(value: Binary) {
+        ids[size++] = chunkDictionary.size + extra.size
+        extra.add(value.toStringUsingUTF8())
+    }
+
+    override fun build(): ParquetColumnVector {
+        return StringColumnVector(size, nulls, ids, if (extra.isEmpty()) chunkDictionary else chunkDictionary + extra)
+    }
+}
@@ -6,6 +6,10 @@
 
 package com.hagoapp.f2t.datafile.parquet
 
+import org.apache.parquet.column.ParquetProperties.WriterVersion
+import org.apache.parquet.hadoop.ParquetWriter
+import org.apache.parquet.hadoop.metadata.CompressionCodecName
+
 /**
  * The configuration for a parquet file as target to write.
  *
@@ -17,4 +21,34 @@ data class ParquetWriterConfig(
     val namespace: String?,
     val name: String,
     val parquetFileName: String
-)
+) {
+    /**
+     * Compression codec of column chunks.
+     */
+    var codec: CompressionCodecName = CompressionCodecName.UNCOMPRESSED
+
+    /**
+     * Size of a row group in bytes, a larger row group makes scanning faster but needs more memory to write.
+     */
+    var rowGroupSize: Int = ParquetWriter.DEFAULT_BLOCK_SIZE
+
+    /**
+     * Size of a page in bytes, a smaller page makes filtering by column indexes finer.
+     */
+    var pageSize: Int = ParquetWriter.DEFAULT_PAGE_SIZE
+
+    /**
+     * Whether columns are dictionary encoded by default.
+     */
+    var dictionaryEncoding: Boolean = true
+
+    /**
+     * Dictionary encoding of columns that differ from default, by column name.
+     */
+    var columnDictionaryEncoding: Map<String, Boolean> = mapOf()
+
+    /**
+     * Version of parquet format to write pages in, <code>PARQUET_2_0</code> writes v2 data pages and encodings.
+     */
+    var writerVersion: WriterVersion = WriterVersion.PARQUET_1_0
+}
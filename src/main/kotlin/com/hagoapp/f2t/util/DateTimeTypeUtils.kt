@@ -16,6 +16,7 @@ import java.time.ZonedDateTime
 import java.time.format.DateTimeFormatter
 import java.time.format.DateTimeParseException
 import java.time.temporal.Temporal
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Utility class to deal with date / time / timestamp types and values.
@@ -28,17 +29,25 @@ class DateTimeTypeUtils {
 
         private val logger = LoggerFactory.getLogger(DateTimeTypeUtils::class.java)
 
-        private val dateTimeFormatters: List<DateTimeFormatter> = listOf(
+        private val isoDateTimeFormatters: List<DateTimeFormatter> = listOf(
             DateTimeFormatter.ISO_INSTANT,
             DateTimeFormatter.ISO_DATE_TIME,
             DateTimeFormatter.ISO_LOCAL_DATE_TIME,
             DateTimeFormatter.ISO_OFFSET_DATE_TIME,
-            DateTimeFormatter.ISO_ZONED_DATE_TIME,
-            DateTimeFormatter.RFC_1123_DATE_TIME,
-            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault()),
+            DateTimeFormatter.ISO_ZONED_DATE_TIME
+        )
+        private val isoPatternDateTimeFormatter =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault())
+        private val spacedDateTimeFormatters: List<DateTimeFormatter> = listOf(
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault()),
             DateTimeFormatter.ofPattern("yyyy-MM-dd hh:mm:ss a")
         )
+        private val rfcDateTimeFormatters = listOf(DateTimeFormatter.RFC_1123_DATE_TIME)
+
+        private val dateTimeFormatters: List<DateTimeFormatter> = isoDateTimeFormatters
+            .plus(rfcDateTimeFormatters)
+            .plus(isoPatternDateTimeFormatter)
+            .plus(spacedDateTimeFormatters)
 
         private val dateFormatters: List<DateTimeFormatter> = listOf(
             DateTimeFormatter.BASIC_ISO_DATE,
@@ -56,6 +65,99 @@ class DateTimeTypeUtils {
             DateTimeFormatter.ofPattern("H:m:s")
         )
 
+        private val patternFormatters = ConcurrentHashMap<String, DateTimeFormatter>()
+
+        private fun patternFormatters(extraFormats: Set<String>): List<DateTimeFormatter> {
+            return if (extraFormats.isEmpty()) emptyList()
+            else extraFormats.map { patternFormatters.computeIfAbsent(it) { p -> DateTimeFormatter.ofPattern(p) } }
+        }
+
+        /*
+         * Following methods classify the shape of input by scanning its characters once, to find the built-in
+         * formatters that could possibly parse it. Strings in other shapes are rejected without parsing, so that no
+         * exception is thrown and caught for them.
+         */
+
+        private fun dateTimeCandidates(input: String): List<DateTimeFormatter> {
+            if ((input.length < 9) || (input.length > 64) || (input.indexOf(':') < 0)) {
+                return emptyList()
+            }
+            var digits = 0
+            var letters = 0
+            for (c in input) {
+                when {
+                    c in '0'..'9' -> digits++
+                    c.isLetter() -> letters++
+                }
+            }
+            if (digits < 9) {
+                return emptyList()
+            }
+            val c0 = input[0]
+            return when {
+                c0.isLetter() -> rfcDateTimeFormatters
+                isIsoDatePrefix(input) && (input.length > 10) && (input[10] == 'T') ->
+                    isoDateTimeFormatters.plus(isoPatternDateTimeFormatter)
+
+                isIsoDatePrefix(input) && (input.length > 10) && (input[10] == ' ') -> spacedDateTimeFormatters
+                (c0 in '0'..'9') && (letters > 0) -> rfcDateTimeFormatters
+                (c0 == '+') || (c0 == '-') -> dateTimeFormatters
+                else -> emptyList()
+            }
+        }
+
+        private fun dateCandidates(input: String): List<DateTimeFormatter> {
+            val len = input.length
+            if ((len < 7) || (len > 40)) {
+                return emptyList()
+            }
+            val c0 = input[0]
+            if ((c0 == '+') || (c0 == '-')) {
+                return dateFormatters
+            }
+            return when {
+                c0 !in '0'..'9' -> emptyList()
+                isIsoDatePrefix(input) ->
+                    if ((len == 10) || isOffsetStart(input[10])) dateFormatters.subList(1, 4) else emptyList()
+
+                (len >= 8) && (0 until 8).all { input[it] in '0'..'9' } ->
+                    if ((len == 8) || isOffsetStart(input[8])) dateFormatters.subList(0, 1) else emptyList()
+
+                (input[4] == '-') && (input[5] == 'W') -> dateFormatters.subList(5, 6)
+                (len >= 8) && (input[4] == '-') && (5..7).all { input[it] in '0'..'9' } ->
+                    dateFormatters.subList(4, 5)
+
+                else -> emptyList()
+            }
+        }
+
+        private fun timeCandidates(input: String): List<DateTimeFormatter> {
+            val len = input.length
+            if ((len < 3) || (len > 40) || (input[0] !in '0'..'9')) {
+                return emptyList()
+            }
+            val shaped = (input[1] == ':') || ((input[1] in '0'..'9') && (input[2] == ':'))
+            return if (shaped) timeFormatters else emptyList()
+        }
+
+        private fun isIsoDatePrefix(input: String): Boolean {
+            if (input.length < 10) {
+                return false
+            }
+            for (i in 0 until 10) {
+                val c = input[i]
+                val ok = if ((i == 4) || (i == 7)) c == '-' else c in '0'..'9'
+                if (!ok) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        private fun isOffsetStart(c: Char): Boolean {
+            return (c == 'Z') || (c == '+') || (c == '-') || (c == '[')
+        }
+
         /**
          * Convert a string to ZonedDateTime using built-in formatters. Null is returned if conversions
          * are failed.
@@ -78,18 +180,41 @@ class DateTimeTypeUtils {
          */
         @JvmStatic
         fun stringToDateTimeOrNull(input: String, extraFormats: Set<String> = emptySet()): ZonedDateTime? {
-            var d: ZonedDateTime? = null
-            for (dtFmt in dateTimeFormatters.plus(extraFormats.map { DateTimeFormatter.ofPattern(it) })) {
-                try {
-                    d = ZonedDateTime.ofInstant(Instant.from(dtFmt.parse(input)), ZoneId.systemDefault())
-                    break
-                } catch (ignore: DateTimeParseException) {
-                    //
-                } catch (ignore: DateTimeException) {
-                    //
+            return findDateTime(input, extraFormats)?.first
+        }
+
+        /**
+         * Convert a string to ZonedDateTime, trying a pinned formatter first and falling back to built-in and
+         * extra formatters. NUll is returned if conversions are failed.
+         *
+         * @param input source string
+         * @param formatter pinned formatter, e.g. the one learned from the column during type inference
+         * @param extraFormats extra formatters
+         * @return zoned datetime
+         */
+        @JvmStatic
+        fun stringToDateTimeOrNull(input: String, formatter: DateTimeFormatter?, extraFormats: Set<String>): ZonedDateTime? {
+            return formatter?.let { parseDateTime(input, it) } ?: stringToDateTimeOrNull(input, extraFormats)
+        }
+
+        internal fun findDateTime(input: String, extraFormats: Set<String>): Pair<ZonedDateTime, DateTimeFormatter>? {
+            for (dtFmt in dateTimeCandidates(input).plus(patternFormatters(extraFormats))) {
+                val d = parseDateTime(input, dtFmt)
+                if (d != null) {
+                    return Pair(d, dtFmt)
                 }
             }
-            return d
+            return null
+        }
+
+        private fun parseDateTime(input: String, formatter: DateTimeFormatter): ZonedDateTime? {
+            return try {
+                ZonedDateTime.ofInstant(Instant.from(formatter.parse(input)), ZoneId.systemDefault())
+            } catch (ignore: DateTimeParseException) {
+                null
+            } catch (ignore: DateTimeException) {
+                null
+            }
         }
 
         /**
@@ -114,20 +239,43 @@ class DateTimeTypeUtils {
          */
         @JvmStatic
         fun stringToDateOrNull(input: String, extraFormats: Set<String> = emptySet()): LocalDate? {
-            var d: LocalDate? = null
-            for (dtFmt in dateFormatters.plus(extraFormats.map { DateTimeFormatter.ofPattern(it) })) {
-                try {
-                    d = LocalDate.from(dtFmt.parse(input))
-                    break
-                } catch (ignored: DateTimeParseException) {
-                    //
-                } catch (ignored: IllegalArgumentException) {
-                    //
-                } catch (ignored: DateTimeException) {
-                    //
+            return findDate(input, extraFormats)?.first
+        }
+
+        /**
+         * Convert a string to LocalDate, trying a pinned formatter first and falling back to built-in and
+         * extra formatters. NUll is returned if conversions are failed.
+         *
+         * @param input source string
+         * @param formatter pinned formatter
+         * @param extraFormats extra formatters
+         * @return local date
+         */
+        @JvmStatic
+        fun stringToDateOrNull(input: String, formatter: DateTimeFormatter?, extraFormats: Set<String>): LocalDate? {
+            return formatter?.let { parseDate(input, it) } ?: stringToDateOrNull(input, extraFormats)
+        }
+
+        internal fun findDate(input: String, extraFormats: Set<String>): Pair<LocalDate, DateTimeFormatter>? {
+            for (dtFmt in dateCandidates(input).plus(patternFormatters(extraFormats))) {
+                val d = parseDate(input, dtFmt)
+                if (d != null) {
+                    return Pair(d, dtFmt)
                 }
             }
-            return d
+            return null
+        }
+
+        private fun parseDate(input: String, formatter: DateTimeFormatter): LocalDate? {
+            return try {
+                LocalDate.from(formatter.parse(input))
+            } catch (ignored: DateTimeParseException) {
+                null
+            } catch (ignored: IllegalArgumentException) {
+                null
+            } catch (ignored: DateTimeException) {
+                null
+            }
         }
 
         /**
@@ -152,20 +300,43 @@ class DateTimeTypeUtils {
          */
         @JvmStatic
         fun stringToTimeOrNull(input: String, extraFormats: Set<String> = emptySet()): LocalTime? {
-            var d: LocalTime? = null
-            for (dtFmt in timeFormatters.plus(extraFormats.map { DateTimeFormatter.ofPattern(it) })) {
-                try {
-                    d = LocalTime.from(dtFmt.parse(input))
-                    break
-                } catch (ex: DateTimeParseException) {
-                    //
-                } catch (ex: IllegalArgumentException) {
-                    //
-                } catch (ex: DateTimeException) {
-                    //
+            return findTime(input, extraFormats)?.first
+        }
+
+        /**
+         * Convert a string to LocalTime, trying a pinned formatter first and falling back to built-in and
+         * extra formatters. NUll is returned if conversions are failed.
+         *
+         * @param input source string
+         * @param formatter pinned formatter
+         * @param extraFormats extra formatters
+         * @return local time
+         */
+        @JvmStatic
+        fun stringToTimeOrNull(input: String, formatter: DateTimeFormatter?, extraFormats: Set<String>): LocalTime? {
+            return formatter?.let { parseTime(input, it) } ?: stringToTimeOrNull(input, extraFormats)
+        }
+
+        internal fun findTime(input: String, extraFormats: Set<String>): Pair<LocalTime, DateTimeFormatter>? {
+            for (dtFmt in timeCandidates(input).plus(patternFormatters(extraFormats))) {
+                val d = parseTime(input, dtFmt)
+                if (d != null) {
+                    return Pair(d, dtFmt)
                 }
             }
-            return d
+            return null
+        }
+
+        private fun parseTime(input: String, formatter: DateTimeFormatter): LocalTime? {
+            return try {
+                LocalTime.from(formatter.parse(input))
+            } catch (ex: DateTimeParseException) {
+                null
+            } catch (ex: IllegalArgumentException) {
+                null
+            } catch (ex: DateTimeException) {
+                null
+            }
         }
 
         /**
@@ -190,19 +361,21 @@ class DateTimeTypeUtils {
          */
         @JvmStatic
         fun stringToTemporalOrNull(input: String, extraFormats: Set<String> = emptySet()): Temporal? {
-            val dt = stringToDateTimeOrNull(input, extraFormats)
-            if (dt != null) {
-                return dt
-            }
-            val d = stringToDateTimeOrNull(input, extraFormats)
-            if (d != null) {
-                return d
-            }
-            val t = stringToDateTimeOrNull(input, extraFormats)
-            if (t != null) {
-                return t
-            }
-            return null
+            return parseTemporal(input, extraFormats)?.first
+        }
+
+        /**
+         * Convert a string to Temporal like <code>stringToTemporalOrNull</code>, and return the formatter which
+         * parsed it as well, so that it could be pinned for other values of the same column.
+         *
+         * @param input source string
+         * @param extraFormats extra formatters
+         * @return temporal value and its formatter, or null if conversions are failed
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun parseTemporal(input: String, extraFormats: Set<String> = emptySet()): Pair<Temporal, DateTimeFormatter>? {
+            return findDateTime(input, extraFormats) ?: findDate(input, extraFormats) ?: findTime(input, extraFormats)
         }
 
         /**
@@ -0,0 +1,119 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.util
+
+import java.sql.JDBCType
+import java.sql.JDBCType.NCLOB
+import java.util.EnumSet
+
+/**
+ * Utility class to represent a set of JDBC types as a bitmask in a long, one bit per constant of
+ * <code>JDBCType</code>. Combining candidate types of values this way allocates nothing. As with sets of types,
+ * 0 means types are not known yet.
+ *
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class JDBCTypeMask {
+    companion object {
+
+        private val TYPES = JDBCType.values()
+
+        init {
+            check(TYPES.size <= Long.SIZE_BITS) { "too many JDBC types to fit in a long mask" }
+        }
+
+        /**
+         * Get the bit of a JDBC type.
+         *
+         * @param type  JDBC type
+         * @return mask of the type only
+         */
+        @JvmStatic
+        fun of(type: JDBCType): Long {
+            return 1L shl type.ordinal
+        }
+
+        /**
+         * Get the mask of JDBC types.
+         *
+         * @param types JDBC types
+         * @return mask of types
+         */
+        @JvmStatic
+        fun of(vararg types: JDBCType): Long {
+            var mask = 0L
+            for (type in types) {
+                mask = mask or of(type)
+            }
+            return mask
+        }
+
+        /**
+         * Get the mask of a collection of JDBC types.
+         *
+         * @param types JDBC types
+         * @return mask of types
+         */
+        @JvmStatic
+        fun fromSet(types: Collection<JDBCType>?): Long {
+            var mask = 0L
+            types?.forEach { mask = mask or of(it) }
+            return mask
+        }
+
+        /**
+         * Convert a mask to a set of JDBC types.
+         *
+         * @param mask  mask of types
+         * @return set of types
+         */
+        @JvmStatic
+        fun toSet(mask: Long): Set<JDBCType> {
+            val set = EnumSet.noneOf(JDBCType::class.java)
+            var rest = mask
+            while (rest != 0L) {
+                val i = java.lang.Long.numberOfTrailingZeros(rest)
+                set.add(TYPES[i])
+                rest = rest and (rest - 1)
+            }
+            return set
+        }
+
+        /**
+         * Check whether a mask contains a JDBC type.
+         *
+         * @param mask  mask of types
+         * @param type  JDBC type
+         * @return true if contained, otherwise false
+         */
+        @JvmStatic
+        fun contains(mask: Long, type: JDBCType): Boolean {
+            return (mask and of(type)) != 0L
+        }
+
+        /**
+         * Combine 2 masks into one, the same way as <code>JDBCTypeUtils.combinePossibleTypes</code>: an unknown(0)
+         * mask is ignored, and only NCLOB is left when no common type exists.
+         *
+         * @param a mask a
+         * @param b mask b
+         * @return combined mask
+         */
+        @JvmStatic
+        fun combine(a: Long, b: Long): Long {
+            return when {
+                a == 0L -> b
+                b == 0L -> a
+                else -> {
+                    val l = a and b
+                    if (l == 0L) of(NCLOB) else l
+                }
+            }
+        }
+    }
+}
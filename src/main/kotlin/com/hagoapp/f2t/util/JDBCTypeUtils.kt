@@ -9,6 +9,7 @@ package com.hagoapp.f2t.util
 import com.hagoapp.util.EncodingUtils
 import java.sql.JDBCType
 import java.sql.JDBCType.*
+import java.time.format.DateTimeFormatter
 
 /**
  * Utility class to deal with JDBC types.
@@ -43,12 +44,15 @@ class JDBCTypeUtils {
          *
          * @param value value
          * @param outType: type of returned value
+         * @param formatter pinned formatter tried first for date / time types, e.g. the one learned by
+         * <code>FileColumnDefinition</code> during type inference
          * @return typed value
          */
-        fun toTypedValue(value: Any?, outType: JDBCType): Any? {
+        @JvmOverloads
+        fun toTypedValue(value: Any?, outType: JDBCType, formatter: DateTimeFormatter? = null): Any? {
             return when (value) {
                 null -> null
-                is String -> stringToTypedValue(value, outType)
+                is String -> stringToTypedValue(value, outType, formatter)
                 else -> value
             }
         }
@@ -58,7 +62,7 @@ class JDBCTypeUtils {
             NCHAR, NVARCHAR, NCLOB
         )
 
-        private fun stringToTypedValue(value: String, outType: JDBCType): Any? {
+        private fun stringToTypedValue(value: String, outType: JDBCType, formatter: DateTimeFormatter?): Any? {
             if (value.isBlank() && !JDBC_TEXT_TYPES.contains(outType)) {
                 return null
             }
@@ -68,10 +72,10 @@ class JDBCTypeUtils {
                 INTEGER -> value.toInt()
                 BIGINT -> value.toLong()
                 DOUBLE, DECIMAL, FLOAT -> value.toDouble()
-                TIMESTAMP, TIMESTAMP_WITH_TIMEZONE -> DateTimeTypeUtils.stringToDateTimeOrNull(value)!!
+                TIMESTAMP, TIMESTAMP_WITH_TIMEZONE -> DateTimeTypeUtils.stringToDateTimeOrNull(value, formatter, emptySet())!!
                 BOOLEAN -> BooleanTypeUtils.toBoolean(value)
-                DATE -> DateTimeTypeUtils.stringToDateOrNull(value)!!
-                TIME, TIME_WITH_TIMEZONE -> DateTimeTypeUtils.stringToTimeOrNull(value)!!
+                DATE -> DateTimeTypeUtils.stringToDateOrNull(value, formatter, emptySet())!!
+                TIME, TIME_WITH_TIMEZONE -> DateTimeTypeUtils.stringToTimeOrNull(value, formatter, emptySet())!!
                 else -> value
             }
         }
@@ -83,90 +87,94 @@ class JDBCTypeUtils {
          * @return collection of possible types
          */
         fun guessTypes(value: String?): List<JDBCType> {
-            val dl = mutableListOf<JDBCType>()
-            if (value == null) {
-                return dl
-            }
-            dl.add(NCLOB)
-            dl.add(NVARCHAR)
-            dl.add(NCHAR)
+            return if (value == null) listOf() else JDBCTypeMask.toSet(guessTypeMask(value)).toList()
+        }
+
+        /**
+         * Guess what kinds of types the input value in string type could be, as a mask of
+         * <code>JDBCTypeMask</code>. No collection is created.
+         *
+         * @param value input string
+         * @return mask of possible types
+         */
+        @JvmStatic
+        fun guessTypeMask(value: String): Long {
+            var mask = JDBCTypeMask.of(NCLOB) or JDBCTypeMask.of(NVARCHAR) or JDBCTypeMask.of(NCHAR)
             if (EncodingUtils.isAsciiText(value)) {
-                dl.add(CLOB)
-                dl.add(VARCHAR)
-                dl.add(CHAR)
+                mask = mask or JDBCTypeMask.of(CLOB) or JDBCTypeMask.of(VARCHAR) or JDBCTypeMask.of(CHAR)
+            }
+            val l = value.toLongOrNull()
+            if (l != null) {
+                mask = mask or intTypeMask(l)
             }
-            dl.addAll(guessIntTypes(value))
-            dl.addAll(guessFloatTypes(value))
+            mask = mask or guessFloatTypeMask(value)
             if (BooleanTypeUtils.isPossibleBooleanValue(value)) {
-                dl.add(BOOLEAN)
+                mask = mask or JDBCTypeMask.of(BOOLEAN)
             }
-            dl.addAll(guessDateTimeTypes(value))
-            return dl
+            return mask or guessDateTimeTypeMask(value)
         }
 
         /**
          * Guess what kinds of date / time types the input value in string type could be.
          *
          * @param value input string
-         * @return collection of possible types
+         * @return mask of possible types
          */
-        private fun guessDateTimeTypes(value: String): Set<JDBCType> {
-            val ret = mutableSetOf<JDBCType>()
+        private fun guessDateTimeTypeMask(value: String): Long {
+            var mask = 0L
             if (DateTimeTypeUtils.isDateTime(value)) {
-                ret.add(TIMESTAMP_WITH_TIMEZONE)
+                mask = mask or JDBCTypeMask.of(TIMESTAMP_WITH_TIMEZONE)
             }
             if (DateTimeTypeUtils.isDate(value)) {
-                ret.add(DATE)
+                mask = mask or JDBCTypeMask.of(DATE)
             }
             if (DateTimeTypeUtils.isTime(value)) {
-                ret.add(TIME)
+                mask = mask or JDBCTypeMask.of(TIME)
             }
-            return ret
+            return mask
         }
 
         /**
-         * Guess what kinds of integral types the input value in string type could be.
+         * Guess what kinds of integral types the input value in long type could be.
          *
-         * @param value input string
+         * @param l input string
          * @return collection of possible types
          */
-        private fun guessIntTypes(value: String): Set<JDBCType> {
-            return guessIntTypes(value.toLongOrNull())
+        fun guessIntTypes(l: Long?): Set<JDBCType> {
+            return if (l == null) setOf() else JDBCTypeMask.toSet(intTypeMask(l))
         }
 
         /**
          * Guess what kinds of integral types the input value in long type could be.
          *
-         * @param l input string
-         * @return collection of possible types
+         * @param l input value
+         * @return mask of possible types
          */
-        fun guessIntTypes(l: Long?): Set<JDBCType> {
-            val ret = mutableSetOf<JDBCType>()
-            if (l != null) {
-                ret.add(BIGINT)
-                if ((l <= Int.MAX_VALUE.toLong()) && (l >= Int.MIN_VALUE.toLong())) {
-                    ret.add(INTEGER)
-                }
-                if ((l <= Short.MAX_VALUE.toLong()) && (l >= Short.MIN_VALUE.toLong())) {
-                    ret.add(SMALLINT)
-                }
-                if ((l <= Byte.MAX_VALUE.toLong()) && (l >= Byte.MIN_VALUE.toLong())) {
-                    ret.add(TINYINT)
-                }
+        @JvmStatic
+        fun intTypeMask(l: Long): Long {
+            var mask = JDBCTypeMask.of(BIGINT)
+            if ((l <= Int.MAX_VALUE.toLong()) && (l >= Int.MIN_VALUE.toLong())) {
+                mask = mask or JDBCTypeMask.of(INTEGER)
             }
-            return ret
+            if ((l <= Short.MAX_VALUE.toLong()) && (l >= Short.MIN_VALUE.toLong())) {
+                mask = mask or JDBCTypeMask.of(SMALLINT)
+            }
+            if ((l <= Byte.MAX_VALUE.toLong()) && (l >= Byte.MIN_VALUE.toLong())) {
+                mask = mask or JDBCTypeMask.of(TINYINT)
+            }
+            return mask
         }
 
-        private fun guessFloatTypes(value: String): Set<JDBCType> {
-            val ret = mutableSetOf<JDBCType>()
-            val l = value.toBigDecimalOrNull()
-            if (l != null) {
-                ret.add(DECIMAL)
-                if ((l <= Double.MAX_VALUE.toBigDecimal()) && (l >= Double.MIN_VALUE.toBigDecimal())) {
-                    ret.addAll(guessFloatTypes(l.toDouble()))
-                }
+        private val DOUBLE_MAX = Double.MAX_VALUE.toBigDecimal()
+        private val DOUBLE_MIN = Double.MIN_VALUE.toBigDecimal()
+
+        private fun guessFloatTypeMask(value: String): Long {
+            val l = value.toBigDecimalOrNull() ?: return 0L
+            var mask = JDBCTypeMask.of(DECIMAL)
+            if ((l <= DOUBLE_MAX) && (l >= DOUBLE_MIN)) {
+                mask = mask or floatTypeMask(l.toDouble())
             }
-            return ret
+            return mask
         }
 
         /**
@@ -176,14 +184,22 @@ class JDBCTypeUtils {
          * @return collection of possible types
          */
         fun guessFloatTypes(value: Double?): Set<JDBCType> {
-            val ret = mutableSetOf<JDBCType>()
-            if (value != null) {
-                ret.add(DOUBLE)
-                if ((value <= Float.MAX_VALUE.toDouble()) && (value >= Float.MIN_VALUE.toDouble())) {
-                    ret.add(FLOAT)
-                }
+            return if (value == null) setOf() else JDBCTypeMask.toSet(floatTypeMask(value))
+        }
+
+        /**
+         * Guess what kinds of float types the input value in double type could be.
+         *
+         * @param value input value
+         * @return mask of possible types
+         */
+        @JvmStatic
+        fun floatTypeMask(value: Double): Long {
+            var mask = JDBCTypeMask.of(DOUBLE)
+            if ((value <= Float.MAX_VALUE.toDouble()) && (value >= Float.MIN_VALUE.toDouble())) {
+                mask = mask or JDBCTypeMask.of(FLOAT)
             }
-            return ret
+            return mask
         }
 
     }
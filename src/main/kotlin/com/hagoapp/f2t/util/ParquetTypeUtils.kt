@@ -6,7 +6,14 @@
 
 package com.hagoapp.f2t.util
 
+import com.hagoapp.f2t.ColumnDefinition
 import org.apache.avro.Schema.Type
+import org.apache.parquet.schema.LogicalTypeAnnotation
+import org.apache.parquet.schema.LogicalTypeAnnotation.stringType
+import org.apache.parquet.schema.MessageType
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName
+import org.apache.parquet.schema.Type.Repetition
+import org.apache.parquet.schema.Types
 import java.sql.JDBCType
 import java.sql.JDBCType.*
 
@@ -60,5 +67,43 @@ class ParquetTypeUtils {
                 else -> throw UnsupportedOperationException("unsupported type $input")
             }
         }
+
+        /**
+         * Map JDBCType to corresponding parquet primitive type, the same as its avro type is written as.
+         *
+         * @param input JDBC type
+         * @return parquet primitive type and logical type annotation
+         */
+        fun mapToParquetType(input: JDBCType): Pair<PrimitiveTypeName, LogicalTypeAnnotation?> {
+            return when (input) {
+                TINYINT, SMALLINT, INTEGER -> Pair(PrimitiveTypeName.INT32, null)
+                BIGINT -> Pair(PrimitiveTypeName.INT64, null)
+                BOOLEAN -> Pair(PrimitiveTypeName.BOOLEAN, null)
+                FLOAT -> Pair(PrimitiveTypeName.FLOAT, null)
+                DOUBLE, DECIMAL -> Pair(PrimitiveTypeName.DOUBLE, null)
+                BINARY, VARBINARY -> Pair(PrimitiveTypeName.BINARY, null)
+                TIME, TIME_WITH_TIMEZONE, DATE, TIMESTAMP_WITH_TIMEZONE, TIMESTAMP,
+                CHAR, VARCHAR, CLOB, NCHAR, NVARCHAR, NCLOB -> Pair(PrimitiveTypeName.BINARY, stringType())
+
+                else -> throw UnsupportedOperationException("unsupported type $input")
+            }
+        }
+
+        /**
+         * Create parquet schema of columns, nullable columns are optional and others are required.
+         *
+         * @param name  name of schema
+         * @param columns   column definitions
+         * @return parquet schema
+         */
+        @JvmStatic
+        fun createMessageType(name: String, columns: List<ColumnDefinition>): MessageType {
+            val fields = columns.map { col ->
+                val (typeName, annotation) = mapToParquetType(col.dataType)
+                val repetition = if (col.typeModifier.isNullable) Repetition.OPTIONAL else Repetition.REQUIRED
+                Types.primitive(typeName, repetition).`as`(annotation).named(col.name)
+            }
+            return MessageType(name, fields)
+        }
     }
 }
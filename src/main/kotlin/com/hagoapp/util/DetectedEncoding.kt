@@ -0,0 +1,56 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.util
+
+import java.io.ByteArrayInputStream
+import java.io.InputStream
+import java.io.SequenceInputStream
+import java.nio.charset.Charset
+
+/**
+ * Result of encoding detection on the head of a stream, including the bytes already read so they could be used
+ * again without reading the stream twice.
+ *
+ * @property encoding   Java encoding name detected
+ * @property bomSize    size of byte order mark found at the head, 0 if none
+ * @property prefix bytes read from the head of stream, byte order mark included
+ * @property isComplete whether the prefix contains the whole stream
+ * @author Chaojun Sun
+ * @since 0.8.7
+ */
+class DetectedEncoding(
+    val encoding: String,
+    val bomSize: Int,
+    val prefix: ByteArray,
+    val isComplete: Boolean
+) {
+    /**
+     * Decode the prefix, byte order mark excluded.
+     *
+     * @param charset   charset to decode with
+     * @return text of prefix
+     */
+    fun prefixText(charset: Charset): String {
+        return String(prefix, bomSize, prefix.size - bomSize, charset)
+    }
+
+    /**
+     * Create a stream which replays the prefix, byte order mark excluded, and continues with the rest of original
+     * stream.
+     *
+     * @param rest  the original stream the prefix was read from
+     * @return stream of the whole content
+     */
+    fun replay(rest: InputStream): InputStream {
+        val head = ByteArrayInputStream(prefix, bomSize, prefix.size - bomSize)
+        return if (isComplete) head else SequenceInputStream(head, rest)
+    }
+
+    override fun toString(): String {
+        return "DetectedEncoding(encoding=$encoding, bomSize=$bomSize, prefixSize=${prefix.size}, isComplete=$isComplete)"
+    }
+}
@@ -29,6 +29,76 @@ class EncodingUtils {
 
         private val logger = LoggerFactory.getLogger(EncodingUtils::class.java)
 
+        /**
+         * Default count of bytes read from the head of stream to detect encoding.
+         */
+        const val DEFAULT_DETECTION_BUDGET = 64 * 1024
+
+        private val BYTE_ORDER_MARKS = listOf(
+            Pair(byteArrayOf(0x00, 0x00, 0xFE.toByte(), 0xFF.toByte()), "UTF-32BE"),
+            Pair(byteArrayOf(0xFF.toByte(), 0xFE.toByte(), 0x00, 0x00), "UTF-32LE"),
+            Pair(byteArrayOf(0xEF.toByte(), 0xBB.toByte(), 0xBF.toByte()), "UTF-8"),
+            Pair(byteArrayOf(0xFE.toByte(), 0xFF.toByte()), "UTF-16BE"),
+            Pair(byteArrayOf(0xFF.toByte(), 0xFE.toByte()), "UTF-16LE")
+        )
+
+        /**
+         * This method will try to figure out which character set the input stream is using, reading no more than
+         * given count of bytes. A byte order mark, a pure ASCII head without NUL bytes, or NUL bytes laid out as UTF-16
+         * decides the result without running the detector. Bytes read are returned with the result so that the stream
+         * need not to be read again.
+         *
+         * @param stream input stream which should be text
+         * @param budget    maximum count of bytes to read
+         * @return detection result
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun detectEncoding(stream: InputStream, budget: Int = DEFAULT_DETECTION_BUDGET): DetectedEncoding {
+            val prefix = stream.readNBytes(budget)
+            val complete = prefix.size < budget
+            val bom = BYTE_ORDER_MARKS.firstOrNull { (mark, _) ->
+                (prefix.size >= mark.size) && mark.indices.all { prefix[it] == mark[it] }
+            }
+            val result = when {
+                bom != null -> DetectedEncoding(bom.second, bom.first.size, prefix, complete)
+                // NUL is not text, it usually comes from UTF-16 without BOM
+                prefix.all { it > 0 } -> DetectedEncoding(StandardCharsets.UTF_8.name(), 0, prefix, complete)
+                else -> {
+                    val encoding = guessUtf16(prefix) ?: UniversalDetector(null).let { det ->
+                        det.handleData(prefix, 0, prefix.size)
+                        det.dataEnd()
+                        normalizeEncoding(det.detectedCharset)
+                    }
+                    DetectedEncoding(encoding, 0, prefix, complete)
+                }
+            }
+            logger.debug("{} detected", result)
+            return result
+        }
+
+        /**
+         * Guess UTF-16 without BOM from the positions of NUL bytes, which are the high bytes of ASCII characters.
+         *
+         * @param prefix    leading bytes of text
+         * @return UTF-16LE or UTF-16BE, null if NUL bytes don't look like UTF-16
+         */
+        private fun guessUtf16(prefix: ByteArray): String? {
+            var even = 0
+            var odd = 0
+            prefix.forEachIndexed { i, b ->
+                if (b.toInt() == 0) {
+                    if (i % 2 == 0) even++ else odd++
+                }
+            }
+            val pairs = prefix.size / 2
+            return when {
+                (odd > pairs / 2) && (even == 0) -> StandardCharsets.UTF_16LE.name()
+                (even > pairs / 2) && (odd == 0) -> StandardCharsets.UTF_16BE.name()
+                else -> null
+            }
+        }
+
         /**
          * This method will try to figure out which character set the input stream is using.
          *
@@ -0,0 +1,72 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.csv;
+
+import com.hagoapp.f2t.datafile.csv.ChunkedCSVParser;
+import com.hagoapp.f2t.datafile.csv.MappedCSVTokenizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+class ChunkedCsvParserTest {
+
+    private static final String CSV_FILE = "./tests/csv/shuihudata.csv";
+
+    @Test
+    void testChunkedRecordsInOrder() throws Exception {
+        var expected = new ArrayList<List<String>>();
+        try (var tokenizer = new MappedCSVTokenizer(CSV_FILE, StandardCharsets.UTF_8, ',', '"')) {
+            tokenizer.forEachRemaining(expected::add);
+        }
+        expected.remove(0);
+        try (var parser = new ChunkedCSVParser(CSV_FILE, StandardCharsets.UTF_8, ',', '"', 4, 1024)) {
+            Assertions.assertTrue(parser.getChunks().size() > 1);
+            var actual = new ArrayList<List<String>>();
+            parser.records().forEachRemaining(actual::add);
+            Assertions.assertEquals(expected, actual);
+            var counts = parser.mapChunks((i, tokenizer) -> {
+                var count = 0;
+                while (tokenizer.nextRecord()) {
+                    count++;
+                }
+                return count;
+            });
+            Assertions.assertEquals(expected.size(), counts.stream().mapToInt(Integer::intValue).sum());
+        }
+    }
+
+    @Test
+    void testQuoteInsideUnquotedField() throws Exception {
+        var content = new StringBuilder("id,item,note\n");
+        for (var i = 0; i < 200; i++) {
+            // a literal quote in an unquoted field must not open a quoted field
+            content.append(i).append(",5\" pipe,\"multi\nline \"\"quoted\"\"\"\n");
+        }
+        var file = Files.createTempFile("chunked", ".csv");
+        try {
+            Files.writeString(file, content.toString(), StandardCharsets.UTF_8);
+            var expected = new ArrayList<List<String>>();
+            try (var tokenizer = new MappedCSVTokenizer(file.toString(), StandardCharsets.UTF_8, ',', '"')) {
+                tokenizer.forEachRemaining(expected::add);
+            }
+            expected.remove(0);
+            Assertions.assertEquals(200, expected.size());
+            try (var parser = new ChunkedCSVParser(file.toString(), StandardCharsets.UTF_8, ',', '"', 4, 97)) {
+                Assertions.assertTrue(parser.getChunks().size() > 10);
+                var actual = new ArrayList<List<String>>();
+                parser.records().forEachRemaining(actual::add);
+                Assertions.assertEquals(expected, actual);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.csv;
+
+import com.hagoapp.f2t.datafile.csv.CSVDialectSniffer;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CsvDialectSnifferTest {
+
+    private static final String SEMICOLON_SAMPLE = "a;b;c\n1;'x;y';3\n4;5;6\n7;8";
+
+    @Test
+    void testDetectDelimiterAndQuote() {
+        var sniffer = new CSVDialectSniffer(SEMICOLON_SAMPLE, false);
+        var delimiter = sniffer.detectDelimiter(',');
+        Assertions.assertEquals(';', delimiter);
+        Assertions.assertEquals('\'', sniffer.detectQuote(delimiter, '"'));
+    }
+
+    @Test
+    void testDelimiterInsideSingleQuotes() {
+        var sniffer = new CSVDialectSniffer("'a,b';c\n'1,2';3\n'4,5';6\n", true);
+        Assertions.assertEquals(';', sniffer.detectDelimiter(','));
+        Assertions.assertEquals(';', sniffer.detectDelimiter(',', '\''));
+    }
+
+    @Test
+    void testUnambiguousFormat() {
+        var sniffer = new CSVDialectSniffer("a,b\n1,2\n3,4\n", true);
+        var formats = List.of(
+                CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build(),
+                CSVFormat.RFC4180.builder().setHeader().setSkipHeaderRecord(true).build()
+        );
+        Assertions.assertEquals(List.of(0), sniffer.findCandidateFormats(formats));
+    }
+
+    @Test
+    void testAmbiguousFormat() {
+        var sniffer = new CSVDialectSniffer("a,b\n1,\"x\\\"\n3,4\n", true);
+        var formats = List.of(
+                CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build(),
+                CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).setEscape('\\')
+                        .setQuote('\'').build()
+        );
+        Assertions.assertEquals(2, sniffer.findCandidateFormats(formats).size());
+    }
+}
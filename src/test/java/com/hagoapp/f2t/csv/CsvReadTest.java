@@ -11,6 +11,7 @@ import com.google.gson.Gson;
 import com.hagoapp.f2t.*;
 import com.hagoapp.f2t.datafile.FileColumnTypeDeterminer;
 import com.hagoapp.f2t.datafile.FileTypeDeterminer;
+import com.hagoapp.f2t.datafile.csv.CSVDataReader;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -22,6 +23,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -96,4 +98,23 @@ class CsvReadTest {
             System.out.println(table);
         }
     }
+
+    @Test
+    void inferWithHugeSample() throws IOException {
+        for (var item : testConfigs.entrySet()) {
+            var testConfig = item.getKey();
+            for (var reservoir : List.of(false, true)) {
+                testConfig.getFileInfo().setReservoirSampling(reservoir);
+                try (var reader = new CSVDataReader()) {
+                    reader.setupTypeDeterminer(item.getValue());
+                    reader.open(testConfig.getFileInfo());
+                    var types = reader.inferColumnTypes(Long.MAX_VALUE).stream()
+                            .collect(Collectors.toMap(FileColumnDefinition::getName, FileColumnDefinition::getDataType));
+                    Assertions.assertEquals(testConfig.getExpect().getTypes(), types);
+                    Assertions.assertEquals(testConfig.getExpect().getRowCount(), reader.getRowCount());
+                }
+            }
+            testConfig.getFileInfo().setReservoirSampling(false);
+        }
+    }
 }
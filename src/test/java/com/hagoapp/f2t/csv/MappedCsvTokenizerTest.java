@@ -0,0 +1,94 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.csv;
+
+import com.hagoapp.f2t.datafile.csv.MappedCSVTokenizer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class MappedCsvTokenizerTest {
+
+    private static final String CSV_FILE = "./tests/csv/shuihudata.csv";
+
+    @Test
+    void testTokenizeSameAsCommonCsv() throws IOException {
+        List<List<String>> expected;
+        try (var fis = new FileInputStream(CSV_FILE);
+             var parser = CSVParser.parse(fis, StandardCharsets.UTF_8, CSVFormat.DEFAULT)) {
+            expected = parser.getRecords().stream().map(CSVRecord::toList).collect(Collectors.toList());
+        }
+        // a small window forces records to cross window boundaries
+        for (var windowSize : List.of(64, MappedCSVTokenizer.DEFAULT_WINDOW_SIZE)) {
+            var actual = new ArrayList<List<String>>();
+            try (var tokenizer = new MappedCSVTokenizer(CSV_FILE, StandardCharsets.UTF_8, ',', '"', 0, -1,
+                    windowSize)) {
+                tokenizer.forEachRemaining(actual::add);
+            }
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testSupported() {
+        Assertions.assertTrue(MappedCSVTokenizer.isSupported(StandardCharsets.UTF_8, CSVFormat.DEFAULT));
+        Assertions.assertFalse(MappedCSVTokenizer.isSupported(StandardCharsets.UTF_16, CSVFormat.DEFAULT));
+        Assertions.assertFalse(MappedCSVTokenizer.isSupported(StandardCharsets.UTF_8, CSVFormat.MYSQL));
+    }
+
+    @Test
+    void testPredefinedFormatParity() throws IOException {
+        for (var predefined : CSVFormat.Predefined.values()) {
+            var format = predefined.getFormat();
+            if (!MappedCSVTokenizer.isSupported(StandardCharsets.UTF_8, format)) {
+                continue;
+            }
+            var d = format.getDelimiterString();
+            var q = format.getQuoteCharacter() == null ? "" : format.getQuoteCharacter().toString();
+            var content = "a" + d + "b" + d + "c\n" +
+                    "1" + d + " x " + d + "\n" +
+                    "\n" +
+                    q + "q" + q + q + "t" + q + d + q + q + d + " 5\" pipe\r\n" +
+                    "   \n" +
+                    "last" + d + d + d + "\n";
+            var file = Files.createTempFile("parity", ".csv");
+            try {
+                Files.writeString(file, content, StandardCharsets.UTF_8);
+                List<List<String>> expected;
+                try (var parser = CSVParser.parse(file, StandardCharsets.UTF_8, format)) {
+                    expected = parser.getRecords().stream().map(CSVRecord::toList).collect(Collectors.toList());
+                }
+                var actual = new ArrayList<List<String>>();
+                try (var tokenizer = new MappedCSVTokenizer(file.toString(), StandardCharsets.UTF_8, d.charAt(0),
+                        format.getQuoteCharacter())) {
+                    tokenizer.forEachRemaining(actual::add);
+                }
+                Assertions.assertEquals(expected, actual, predefined.name());
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testUnsupportedPredefinedFormats() {
+        for (var format : List.of(CSVFormat.RFC4180, CSVFormat.EXCEL, CSVFormat.POSTGRESQL_CSV, CSVFormat.TDF,
+                CSVFormat.ORACLE)) {
+            Assertions.assertFalse(MappedCSVTokenizer.isSupported(StandardCharsets.UTF_8, format));
+        }
+    }
+}
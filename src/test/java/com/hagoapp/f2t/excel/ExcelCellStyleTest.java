@@ -0,0 +1,51 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.excel;
+
+import com.hagoapp.f2t.datafile.excel.ExcelCell;
+import com.hagoapp.f2t.datafile.excel.ExcelCellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+class ExcelCellStyleTest {
+
+    @Test
+    void testNumericCell() {
+        var date = new ExcelCellStyle(14, "m/d/yy");
+        Assertions.assertTrue(date.isDateFormat());
+        Assertions.assertTrue(date.numericCell(44000).isDateFormatted());
+        Assertions.assertFalse(date.numericCell(-1).isDateFormatted());
+        var general = new ExcelCellStyle(0, "General");
+        Assertions.assertFalse(general.isDateFormat());
+        var cell = general.numericCell(44000);
+        Assertions.assertEquals(CellType.NUMERIC, cell.getType());
+        Assertions.assertFalse(cell.isDateFormatted());
+    }
+
+    @Test
+    void testSameAsCellDateFormatted() throws Exception {
+        try (var workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook()) {
+            var style = workbook.createCellStyle();
+            style.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+            var row = workbook.createSheet().createRow(0);
+            var styles = new HashMap<Integer, ExcelCellStyle>();
+            for (var i = 0; i < 4; i++) {
+                var cell = row.createCell(i);
+                cell.setCellValue(44000.5 + i);
+                if (i % 2 == 0) {
+                    cell.setCellStyle(style);
+                }
+                Assertions.assertEquals(DateUtil.isCellDateFormatted(cell), ExcelCell.of(cell, styles).isDateFormatted());
+            }
+            Assertions.assertEquals(2, styles.size());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.excel;
+
+import com.hagoapp.f2t.DataRow;
+import com.hagoapp.f2t.F2TException;
+import com.hagoapp.f2t.datafile.Reader;
+import com.hagoapp.f2t.datafile.ReaderFactory;
+import com.hagoapp.f2t.datafile.excel.ExcelDataFileReader;
+import com.hagoapp.f2t.datafile.excel.FileInfoExcel;
+import com.hagoapp.f2t.datafile.excel.XlsDataFileReader;
+import com.hagoapp.f2t.datafile.excel.XlsWorkbook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class XlsDataFileReaderTest {
+
+    private static final List<String> TEST_EXCEL_FILES = List.of(
+            "tests/excel/shuihudata.xls",
+            "tests/excel/shuihudata_untyped.xls"
+    );
+
+    @Test
+    void testSameAsWorkbookReader() {
+        for (var excel : TEST_EXCEL_FILES) {
+            var info = new FileInfoExcel();
+            info.setSheetIndex(0);
+            info.setFilename(excel);
+            try (var expected = new ExcelDataFileReader(); var actual = new XlsDataFileReader()) {
+                expected.open(info);
+                actual.open(info);
+                Assertions.assertEquals(expected.getRowCount(), actual.getRowCount());
+                Assertions.assertEquals(expected.inferColumnTypes(-1), actual.inferColumnTypes(-1));
+                Assertions.assertEquals(readAll(expected), readAll(actual));
+            }
+        }
+    }
+
+    @Test
+    void testRegistered() throws IOException {
+        var info = new FileInfoExcel();
+        info.setFilename(TEST_EXCEL_FILES.get(0));
+        try (var reader = ReaderFactory.Companion.getReader(info)) {
+            Assertions.assertInstanceOf(XlsDataFileReader.class, reader);
+        }
+    }
+
+    @Test
+    void testMissingSheet() {
+        var byIndex = new FileInfoExcel();
+        byIndex.setSheetIndex(1);
+        byIndex.setFilename(TEST_EXCEL_FILES.get(0));
+        var byName = new FileInfoExcel();
+        byName.setSheetName("no such sheet");
+        byName.setFilename(TEST_EXCEL_FILES.get(0));
+        for (var info : List.of(byIndex, byName)) {
+            try (var reader = new XlsDataFileReader()) {
+                Assertions.assertThrows(F2TException.class, () -> reader.open(info));
+            }
+        }
+    }
+
+    @Test
+    void testSharedWorkbook() throws Exception {
+        var excel = TEST_EXCEL_FILES.get(0);
+        var info = new FileInfoExcel();
+        info.setFilename(excel);
+        List<DataRow> expected;
+        try (var reader = new XlsDataFileReader()) {
+            reader.open(info);
+            expected = readAll(reader);
+        }
+        try (var workbook = new XlsWorkbook(excel)) {
+            var executor = Executors.newFixedThreadPool(4);
+            try {
+                var futures = new ArrayList<Future<List<DataRow>>>();
+                for (var i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> {
+                        try (var reader = new XlsDataFileReader(workbook)) {
+                            reader.open(info);
+                            return readAll(reader);
+                        }
+                    }));
+                }
+                for (var future : futures) {
+                    Assertions.assertEquals(expected, future.get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private List<DataRow> readAll(Reader reader) {
+        var rows = new ArrayList<DataRow>();
+        reader.forEachRemaining(rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.excel;
+
+import com.hagoapp.f2t.DataRow;
+import com.hagoapp.f2t.F2TException;
+import com.hagoapp.f2t.datafile.Reader;
+import com.hagoapp.f2t.datafile.excel.ExcelDataFileReader;
+import com.hagoapp.f2t.datafile.excel.FileInfoExcelX;
+import com.hagoapp.f2t.datafile.excel.XlsxDataFileReader;
+import com.hagoapp.f2t.datafile.excel.XlsxWorkbook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class XlsxDataFileReaderTest {
+
+    private static final List<String> TEST_EXCEL_FILES = List.of(
+            "tests/excel/shuihudata.xlsx",
+            "tests/excel/shuihudata_untyped.xlsx"
+    );
+
+    @Test
+    void testSameAsWorkbookReader() {
+        for (var excel : TEST_EXCEL_FILES) {
+            var info = new FileInfoExcelX();
+            info.setSheetIndex(0);
+            info.setFilename(excel);
+            try (var expected = new ExcelDataFileReader(); var actual = new XlsxDataFileReader()) {
+                expected.open(info);
+                actual.open(info);
+                Assertions.assertEquals(expected.getRowCount(), actual.getRowCount());
+                Assertions.assertEquals(expected.inferColumnTypes(-1), actual.inferColumnTypes(-1));
+                Assertions.assertEquals(readAll(expected), readAll(actual));
+            }
+        }
+    }
+
+    @Test
+    void testEmptySheets() {
+        for (var i = 0; i < 3; i++) {
+            var info = new FileInfoExcelX();
+            info.setSheetIndex(i);
+            info.setFilename("tests/excel/empty.xlsx");
+            try (var reader = new XlsxDataFileReader()) {
+                reader.open(info);
+                Assertions.assertEquals(i == 1, !reader.findColumns().isEmpty());
+                Assertions.assertFalse(reader.hasNext());
+            }
+        }
+    }
+
+    @Test
+    void testMissingSheet() {
+        var byIndex = new FileInfoExcelX();
+        byIndex.setSheetIndex(3);
+        byIndex.setFilename("tests/excel/empty.xlsx");
+        var byName = new FileInfoExcelX();
+        byName.setSheetName("no such sheet");
+        byName.setFilename("tests/excel/empty.xlsx");
+        for (var info : List.of(byIndex, byName)) {
+            try (var reader = new XlsxDataFileReader()) {
+                Assertions.assertThrows(F2TException.class, () -> reader.open(info));
+            }
+        }
+    }
+
+    @Test
+    void testSharedWorkbook() throws Exception {
+        var excel = TEST_EXCEL_FILES.get(0);
+        var info = new FileInfoExcelX();
+        info.setFilename(excel);
+        List<DataRow> expected;
+        try (var reader = new XlsxDataFileReader()) {
+            reader.open(info);
+            expected = readAll(reader);
+        }
+        try (var workbook = new XlsxWorkbook(excel)) {
+            var executor = Executors.newFixedThreadPool(2);
+            try {
+                var futures = new ArrayList<Future<List<DataRow>>>();
+                for (var i = 0; i < 2; i++) {
+                    futures.add(executor.submit(() -> {
+                        try (var reader = new XlsxDataFileReader(workbook)) {
+                            reader.open(info);
+                            return readAll(reader);
+                        }
+                    }));
+                }
+                for (var future : futures) {
+                    Assertions.assertEquals(expected, future.get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private List<DataRow> readAll(Reader reader) {
+        var rows = new ArrayList<DataRow>();
+        reader.forEachRemaining(rows::add);
+        return rows;
+    }
+}
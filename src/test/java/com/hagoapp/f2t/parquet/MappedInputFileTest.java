@@ -0,0 +1,67 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.parquet;
+
+import com.hagoapp.f2t.datafile.parquet.MappedInputFile;
+import com.hagoapp.f2t.datafile.parquet.MemoryParquetReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+class MappedInputFileTest {
+
+    private static final Path TEST_PARQUET_FILE = Path.of("tests/parquet/shuihu_most.parquet");
+
+    @Test
+    void testReadAcrossSlots() throws IOException {
+        var content = Files.readAllBytes(TEST_PARQUET_FILE);
+        var file = new MappedInputFile(TEST_PARQUET_FILE, 1000);
+        Assertions.assertEquals(content.length, file.getLength());
+        try (var stream = file.newStream()) {
+            var start = content.length / 2 - 1500;
+            stream.seek(start);
+            var bytes = new byte[3000];
+            stream.readFully(bytes);
+            Assertions.assertArrayEquals(Arrays.copyOfRange(content, start, start + 3000), bytes);
+            Assertions.assertEquals(start + 3000, stream.getPos());
+            stream.seek(start);
+            var buffer = ByteBuffer.allocateDirect(3000);
+            stream.readFully(buffer);
+            buffer.flip();
+            var copied = new byte[3000];
+            buffer.get(copied);
+            Assertions.assertArrayEquals(bytes, copied);
+            stream.seek(content.length - 1);
+            Assertions.assertEquals(content[content.length - 1] & 0xff, stream.read());
+            Assertions.assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    void testSameAsMemoryInputFile() throws IOException {
+        var len = Files.size(TEST_PARQUET_FILE);
+        Object[][] expected;
+        try (var fis = new FileInputStream(TEST_PARQUET_FILE.toFile())) {
+            try (var reader = MemoryParquetReader.create(fis, len)) {
+                expected = reader.read(10000);
+            }
+        }
+        try (var reader = new MemoryParquetReader(new MappedInputFile(TEST_PARQUET_FILE, 1000))) {
+            var actual = reader.read(10000);
+            Assertions.assertEquals(expected.length, actual.length);
+            for (var i = 0; i < expected.length; i++) {
+                Assertions.assertArrayEquals(expected[i], actual[i]);
+            }
+        }
+    }
+}
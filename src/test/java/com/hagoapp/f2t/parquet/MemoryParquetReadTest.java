@@ -9,6 +9,9 @@ package com.hagoapp.f2t.parquet;
 import com.google.gson.Gson;
 import com.hagoapp.f2t.ColumnDefinition;
 import com.hagoapp.f2t.Constants;
+import com.hagoapp.f2t.DataCell;
+import com.hagoapp.f2t.DataRow;
+import com.hagoapp.f2t.DataTable;
 import com.hagoapp.f2t.F2TException;
 import com.hagoapp.f2t.FileParser;
 import com.hagoapp.f2t.csv.CsvTestConfig;
@@ -16,6 +19,12 @@ import com.hagoapp.f2t.datafile.FileColumnTypeDeterminer;
 import com.hagoapp.f2t.datafile.FileTypeDeterminer;
 import com.hagoapp.f2t.datafile.parquet.*;
 import kotlin.Triple;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.api.Binary;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +34,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.sql.JDBCType;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -259,4 +271,338 @@ class MemoryParquetReadTest {
             }
         }
     }
+
+    @Test
+    void testProjectionChangedWhileReading() throws IOException {
+        for (var config : testConfigFiles) {
+            var len = new File(config.getThird()).length();
+            Object[][] expected;
+            try (var fis = new FileInputStream(config.getThird())) {
+                try (var ps = MemoryParquetReader.create(fis, len)) {
+                    expected = ps.read(10000);
+                }
+            }
+            try (var fis = new FileInputStream(config.getThird())) {
+                try (var ps = MemoryParquetReader.create(fis, len)) {
+                    var half = expected.length / 2;
+                    ps.fetchColumnByIndexes(0);
+                    var head = ps.read(half);
+                    ps.fetchColumnByIndexSelector(i -> true);
+                    var tail = ps.read(expected.length);
+                    Assertions.assertEquals(expected.length, head.length + tail.length);
+                    for (var i = 0; i < head.length; i++) {
+                        Assertions.assertEquals(expected[i][0], head[i][0]);
+                    }
+                    for (var i = 0; i < tail.length; i++) {
+                        Assertions.assertArrayEquals(expected[half + i], tail[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testTypedConsumer() throws IOException {
+        for (var config : testConfigFiles) {
+            var len = new File(config.getThird()).length();
+            Object[][] expected;
+            try (var fis = new FileInputStream(config.getThird())) {
+                try (var ps = MemoryParquetReader.create(fis, len)) {
+                    expected = ps.read(10000);
+                }
+            }
+            var actual = new ArrayList<Object[]>();
+            try (var fis = new FileInputStream(config.getThird())) {
+                try (var ps = MemoryParquetReader.create(fis, len)) {
+                    var row = new Object[ps.getColumns().size()];
+                    var count = ps.read(10000, new ParquetRowConsumer() {
+                        @Override
+                        public void onNull(int column) {
+                            row[column] = null;
+                        }
+
+                        @Override
+                        public void onInt(int column, int value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onLong(int column, long value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onFloat(int column, float value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onDouble(int column, double value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onBoolean(int column, boolean value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onString(int column, @NotNull String value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onBinary(int column, @NotNull Binary value) {
+                            row[column] = value;
+                        }
+
+                        @Override
+                        public void onRowEnd(int rowNo) {
+                            actual.add(row.clone());
+                        }
+                    });
+                    Assertions.assertEquals(expected.length, count);
+                }
+            }
+            for (var i = 0; i < expected.length; i++) {
+                Assertions.assertArrayEquals(expected[i], actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testColumnBatch() throws IOException {
+        for (var config : testConfigFiles) {
+            var len = new File(config.getThird()).length();
+            Object[][] expected;
+            try (var fis = new FileInputStream(config.getThird())) {
+                try (var ps = MemoryParquetReader.create(fis, len)) {
+                    expected = ps.read(10000);
+                }
+            }
+            var actual = new ArrayList<Object[]>();
+            try (var fis = new FileInputStream(config.getThird())) {
+                try (var ps = MemoryParquetReader.create(fis, len)) {
+                    // mixed with row reading
+                    actual.addAll(List.of(ps.read(3)));
+                    ParquetColumnBatch batch;
+                    while ((batch = ps.readBatch(50)) != null) {
+                        Assertions.assertTrue(batch.getRowCount() <= 50);
+                        for (var i = 0; i < batch.getRowCount(); i++) {
+                            var row = new Object[batch.getVectors().size()];
+                            for (var j = 0; j < row.length; j++) {
+                                row[j] = batch.getVectors().get(j).get(i);
+                            }
+                            actual.add(row);
+                        }
+                    }
+                }
+            }
+            Assertions.assertEquals(expected.length, actual.size());
+            for (var i = 0; i < expected.length; i++) {
+                Assertions.assertArrayEquals(expected[i], actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testParallelRowGroups() throws IOException {
+        for (var config : testConfigFiles) {
+            var path = new File(config.getThird()).toPath();
+            Object[][] expected;
+            try (var ps = MemoryParquetReader.create(path)) {
+                expected = ps.read(10000);
+                Assertions.assertEquals(expected.length, ps.getRowCount());
+            }
+            for (var ordered : List.of(true, false)) {
+                var groups = new ArrayList<ParquetRowGroupRows>();
+                try (var ps = MemoryParquetReader.create(path)) {
+                    try (var parallel = ps.readRowGroupsInParallel(2, ordered)) {
+                        parallel.forEachRemaining(groups::add);
+                    }
+                    Assertions.assertEquals(0, ps.read(1).length);
+                }
+                groups.sort(Comparator.comparingInt(ParquetRowGroupRows::getIndex));
+                var actual = groups.stream().flatMap(group -> Arrays.stream(group.getRows()))
+                        .collect(Collectors.toList());
+                Assertions.assertEquals(expected.length, actual.size());
+                for (var i = 0; i < expected.length; i++) {
+                    Assertions.assertArrayEquals(expected[i], actual.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFilterPushdown() throws IOException {
+        var path = new File(testConfigFiles.get(0).getThird()).toPath();
+        Object[][] all;
+        int keyIndex;
+        int nameIndex;
+        try (var ps = MemoryParquetReader.create(path)) {
+            var names = ps.getColumns().stream().map(ColumnDefinition::getName).collect(Collectors.toList());
+            keyIndex = names.indexOf("座次");
+            nameIndex = names.indexOf("姓名");
+            all = ps.read(10000);
+        }
+        var expected = Arrays.stream(all).filter(row -> ((Number) row[keyIndex]).longValue() >= 100)
+                .collect(Collectors.toList());
+        Assertions.assertFalse(expected.isEmpty());
+        try (var ps = MemoryParquetReader.create(path)) {
+            var actual = ps.where("座次", ParquetFilterOperator.GT_EQ, 100).read(10000);
+            Assertions.assertEquals(expected.size(), actual.length);
+            for (var i = 0; i < actual.length; i++) {
+                Assertions.assertArrayEquals(expected.get(i), actual[i]);
+            }
+        }
+        // filtered column not selected
+        try (var ps = MemoryParquetReader.create(path)) {
+            var actual = ps.where("座次", ParquetFilterOperator.GT_EQ, 100).fetchColumnByNames("姓名").read(10000);
+            Assertions.assertEquals(expected.size(), actual.length);
+            for (var i = 0; i < actual.length; i++) {
+                Assertions.assertNull(actual[i][keyIndex]);
+                Assertions.assertEquals(expected.get(i)[nameIndex], actual[i][nameIndex]);
+            }
+        }
+        try (var ps = MemoryParquetReader.create(path)) {
+            var actual = ps.where("姓名", ParquetFilterOperator.EQ, "宋江")
+                    .where("座次", ParquetFilterOperator.LT, 2).read(10000);
+            Assertions.assertEquals(1, actual.length);
+            Assertions.assertEquals("宋江", actual[0][nameIndex]);
+        }
+        try (var fis = new FileInputStream(path.toFile())) {
+            try (var ps = MemoryParquetReader.create(fis, path.toFile().length())) {
+                Assertions.assertThrows(UnsupportedOperationException.class,
+                        () -> ps.where("座次", ParquetFilterOperator.GT, 100));
+            }
+        }
+    }
+
+    @Test
+    void testFilterSkippingRowGroups() throws IOException {
+        var columns = List.of(
+                new ColumnDefinition("id", JDBCType.BIGINT),
+                new ColumnDefinition("x", JDBCType.INTEGER),
+                new ColumnDefinition("y", JDBCType.INTEGER)
+        );
+        // x and y are 1 in separate pages of each 800 rows, so that row groups are kept by statistics but all of
+        // their pages are dropped by column indexes, except for the 2 runs where both are 1
+        var rowCount = 16000;
+        var rows = IntStream.range(0, rowCount).mapToObj(i -> {
+            var both = ((i >= 8000) && (i < 8050)) || (i >= rowCount - 50);
+            var x = both || ((i % 800 >= 100) && (i % 800 < 300)) ? 1 : 0;
+            var y = both || ((i % 800 >= 500) && (i % 800 < 700)) ? 1 : 0;
+            return new DataRow(i, List.of(new DataCell((long) i, 0), new DataCell(x, 1), new DataCell(y, 2)));
+        }).collect(Collectors.toList());
+        var expected = IntStream.range(0, rowCount).filter(i -> ((i >= 8000) && (i < 8050)) || (i >= rowCount - 50))
+                .mapToObj(i -> (long) i).collect(Collectors.toList());
+        var file = File.createTempFile("filter_row_groups", ".parquet");
+        try {
+            file.delete();
+            var config = new ParquetWriterConfig("com.hagoapp.f2t", "groups", file.getAbsolutePath());
+            config.setRowGroupSize(16 * 1024);
+            config.setPageSize(256);
+            config.setDictionaryEncoding(false);
+            new ParquetDataTableWriter(new DataTable<>(columns, rows), config).write();
+            var path = file.toPath();
+
+            var filter = FilterCompat.get(FilterApi.and(
+                    FilterApi.eq(FilterApi.intColumn("x"), 1), FilterApi.eq(FilterApi.intColumn("y"), 1)));
+            var options = ParquetReadOptions.builder().withRecordFilter(filter).useColumnIndexFilter(true).build();
+            try (var reader = new ParquetFileReader(new MappedInputFile(path), options)) {
+                var dropped = IntStream.range(0, reader.getRowGroups().size()).filter(i -> {
+                    try {
+                        return reader.readFilteredRowGroup(i) == null;
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }).count();
+                Assertions.assertTrue(dropped > 0);
+                Assertions.assertTrue(reader.getRowGroups().size() - dropped >= 2);
+            }
+
+            try (var ps = MemoryParquetReader.create(path)) {
+                var actual = ps.where("x", ParquetFilterOperator.EQ, 1).where("y", ParquetFilterOperator.EQ, 1)
+                        .read(rowCount);
+                var ids = Arrays.stream(actual).map(row -> row[0]).collect(Collectors.toList());
+                Assertions.assertEquals(expected, ids);
+            }
+            // row group being read is read again by its index when projection changes
+            try (var ps = MemoryParquetReader.create(path)) {
+                ps.where("x", ParquetFilterOperator.EQ, 1).where("y", ParquetFilterOperator.EQ, 1);
+                var ids = Arrays.stream(ps.read(20)).map(row -> row[0]).collect(Collectors.toList());
+                ps.fetchColumnByNames("id");
+                for (var row : ps.read(rowCount)) {
+                    Assertions.assertNull(row[1]);
+                    ids.add(row[0]);
+                }
+                Assertions.assertEquals(expected, ids);
+            }
+            // row groups not started are decoded in parallel from the index after the one being read
+            try (var ps = MemoryParquetReader.create(path)) {
+                ps.where("x", ParquetFilterOperator.EQ, 1).where("y", ParquetFilterOperator.EQ, 1);
+                var ids = Arrays.stream(ps.read(50)).map(row -> row[0]).collect(Collectors.toList());
+                try (var parallel = ps.readRowGroupsInParallel(2, true)) {
+                    parallel.forEachRemaining(group -> Arrays.stream(group.getRows()).forEach(row -> ids.add(row[0])));
+                }
+                Assertions.assertEquals(0, ps.read(1).length);
+                Assertions.assertEquals(expected, ids);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void testWriteNullValues() throws IOException {
+        var columns = List.of(
+                new ColumnDefinition("id", JDBCType.INTEGER),
+                new ColumnDefinition("name", JDBCType.VARCHAR),
+                new ColumnDefinition("amount", JDBCType.DOUBLE)
+        );
+        var rows = List.of(
+                new DataRow(0, List.of(new DataCell(1, 0), new DataCell("a", 1), new DataCell(1.5, 2))),
+                new DataRow(1, List.of(new DataCell(2, 0), new DataCell(null, 1), new DataCell("", 2))),
+                new DataRow(2, List.of(new DataCell("3", 0), new DataCell("c", 1), new DataCell(null, 2)))
+        );
+        var file = File.createTempFile("write_null", ".parquet");
+        try {
+            file.delete();
+            var config = new ParquetWriterConfig("com.hagoapp.f2t", "nulls", file.getAbsolutePath());
+            new ParquetDataTableWriter(new DataTable<>(columns, rows), config).write();
+            try (var ps = MemoryParquetReader.create(file.toPath())) {
+                var actual = ps.read(10);
+                Assertions.assertEquals(3, actual.length);
+                Assertions.assertArrayEquals(new Object[]{1, "a", 1.5}, actual[0]);
+                Assertions.assertArrayEquals(new Object[]{2, null, null}, actual[1]);
+                Assertions.assertArrayEquals(new Object[]{3, "c", null}, actual[2]);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void testNullOfRequiredColumn() throws IOException {
+        var id = new ColumnDefinition("id", JDBCType.INTEGER);
+        id.getTypeModifier().setNullable(false);
+        var columns = List.of(id, new ColumnDefinition("name", JDBCType.VARCHAR));
+        var file = File.createTempFile("write_required", ".parquet");
+        try {
+            // a blank numeric string is converted to null as well
+            for (var value : Arrays.asList(null, "")) {
+                file.delete();
+                var rows = List.of(
+                        new DataRow(0, List.of(new DataCell(1, 0), new DataCell("a", 1))),
+                        new DataRow(1, List.of(new DataCell(value, 0), new DataCell("b", 1)))
+                );
+                var config = new ParquetWriterConfig("com.hagoapp.f2t", "required", file.getAbsolutePath());
+                var writer = new ParquetDataTableWriter(new DataTable<>(columns, rows), config);
+                var e = Assertions.assertThrows(F2TException.class, writer::write);
+                Assertions.assertTrue(e.getMessage().contains("id"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
 }
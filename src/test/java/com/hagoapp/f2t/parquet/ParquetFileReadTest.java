@@ -9,6 +9,7 @@ package com.hagoapp.f2t.parquet;
 import com.google.gson.Gson;
 import com.hagoapp.f2t.ColumnDefinition;
 import com.hagoapp.f2t.DataCell;
+import com.hagoapp.f2t.datafile.parquet.FileInfoParquet;
 import com.hagoapp.f2t.datafile.parquet.ParquetDataFileReader;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -53,6 +54,7 @@ class ParquetFileReadTest {
         for (var testConfig : testConfigs) {
             try (var reader = new ParquetDataFileReader()) {
                 reader.open(testConfig.getFileInfo());
+                Assertions.assertEquals(testConfig.getExpect().getRowCount(), reader.getRowCount());
                 var columns = reader.findColumns().stream().map(ColumnDefinition::getName).collect(Collectors.toSet());
                 logger.debug("column def: {}", reader.findColumns().stream()
                         .map(col -> String.format("%s - %s", col.getName(), col.getDataType()))
@@ -72,4 +74,35 @@ class ParquetFileReadTest {
             }
         }
     }
+
+    @Test
+    void readParquetInBlocks() throws IOException {
+        for (var testConfig : testConfigs) {
+            var fileInfo = testConfig.getFileInfo();
+            var expected = readAll(fileInfo);
+            Assertions.assertEquals(testConfig.getExpect().getRowCount(), expected.size());
+            for (var prefetch : List.of(false, true)) {
+                for (var blockSize : List.of(1, 7, expected.size(), expected.size() + 1)) {
+                    fileInfo.setBlockSize(blockSize);
+                    fileInfo.setPrefetch(prefetch);
+                    Assertions.assertEquals(expected, readAll(fileInfo));
+                }
+            }
+            fileInfo.setBlockSize(4096);
+            fileInfo.setPrefetch(false);
+        }
+    }
+
+    private List<List<Object>> readAll(FileInfoParquet fileInfo) throws IOException {
+        var rows = new ArrayList<List<Object>>();
+        try (var reader = new ParquetDataFileReader()) {
+            reader.open(fileInfo);
+            while (reader.hasNext()) {
+                var row = reader.next();
+                Assertions.assertEquals((long) rows.size(), row.getRowNo());
+                rows.add(row.getCells().stream().map(DataCell::getData).collect(Collectors.toList()));
+            }
+        }
+        return rows;
+    }
 }
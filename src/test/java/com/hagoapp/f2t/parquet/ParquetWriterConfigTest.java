@@ -0,0 +1,88 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.parquet;
+
+import com.hagoapp.f2t.ColumnDefinition;
+import com.hagoapp.f2t.DataCell;
+import com.hagoapp.f2t.DataRow;
+import com.hagoapp.f2t.DataTable;
+import com.hagoapp.f2t.datafile.parquet.MappedInputFile;
+import com.hagoapp.f2t.datafile.parquet.MemoryParquetReader;
+import com.hagoapp.f2t.datafile.parquet.ParquetDataTableWriter;
+import com.hagoapp.f2t.datafile.parquet.ParquetWriterConfig;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.JDBCType;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class ParquetWriterConfigTest {
+    private static final int ROW_COUNT = 20000;
+
+    private static final List<ColumnDefinition> COLUMNS = List.of(
+            new ColumnDefinition("id", JDBCType.BIGINT),
+            new ColumnDefinition("category", JDBCType.VARCHAR),
+            new ColumnDefinition("code", JDBCType.VARCHAR)
+    );
+
+    private static DataTable<ColumnDefinition> createData() {
+        var rows = IntStream.range(0, ROW_COUNT).mapToObj(i -> new DataRow(i, List.of(
+                new DataCell((long) i, 0),
+                new DataCell("category" + i % 5, 1),
+                new DataCell("code" + i % 7, 2)
+        ))).collect(Collectors.toList());
+        return new DataTable<>(COLUMNS, rows);
+    }
+
+    @Test
+    void testWriterConfig() throws IOException {
+        var file = File.createTempFile("writer_config", ".parquet");
+        try {
+            file.delete();
+            var config = new ParquetWriterConfig("com.hagoapp.f2t", "config", file.getAbsolutePath());
+            config.setCodec(CompressionCodecName.GZIP);
+            config.setRowGroupSize(8 * 1024);
+            config.setPageSize(1024);
+            config.setColumnDictionaryEncoding(Map.of("code", false));
+            config.setWriterVersion(ParquetProperties.WriterVersion.PARQUET_2_0);
+            var data = createData();
+            new ParquetDataTableWriter(data, config).write();
+
+            try (var reader = ParquetFileReader.open(new MappedInputFile(file.toPath()))) {
+                var blocks = reader.getFooter().getBlocks();
+                Assertions.assertTrue(blocks.size() > 1);
+                for (var block : blocks) {
+                    var chunks = block.getColumns();
+                    chunks.forEach(chunk -> Assertions.assertEquals(CompressionCodecName.GZIP, chunk.getCodec()));
+                    Assertions.assertTrue(chunks.get(1).hasDictionaryPage());
+                    Assertions.assertFalse(chunks.get(2).hasDictionaryPage());
+                    Assertions.assertFalse(chunks.get(2).getEncodings().contains(Encoding.RLE_DICTIONARY));
+                }
+            }
+            try (var ps = MemoryParquetReader.create(file.toPath())) {
+                Assertions.assertEquals(ROW_COUNT, ps.getRowCount());
+                var rows = ps.read(ROW_COUNT);
+                Assertions.assertEquals(ROW_COUNT, rows.length);
+                for (var i = 0; i < ROW_COUNT; i++) {
+                    var expected = data.getRows().get(i).getCells().stream().map(DataCell::getData).toArray();
+                    Assertions.assertArrayEquals(expected, rows[i]);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
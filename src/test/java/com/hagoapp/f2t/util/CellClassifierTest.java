@@ -0,0 +1,59 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.util;
+
+import com.hagoapp.f2t.datafile.CellClassifier;
+import com.hagoapp.util.EncodingUtils;
+import com.hagoapp.util.NumericUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+class CellClassifierTest {
+
+    private final List<String> cases = List.of(
+            "12", "-7", "+300", "0012", "3.2", "1000.000", "-100008.567", ".5", "1.", "1e5", "2.5E-3",
+            "9223372036854775807", "9223372036854775808", "-9223372036854775808", "123456789012345678901234",
+            "true", "N", "yes", "2021-04-01", "20210401", "2021-04-01 23:12:24", "2021-04-01T23:12:24Z", "12:30:00",
+            "abc", "测试", "1,000", "1e", "-", "."
+    );
+
+    @Test
+    void testSameAsSeparateChecks() {
+        var classifier = new CellClassifier();
+        for (var cell : cases) {
+            classifier.classify(cell);
+            Assertions.assertEquals(Set.copyOf(JDBCTypeUtils.Companion.guessTypes(cell)),
+                    JDBCTypeMask.toSet(classifier.getTypeMask()), cell);
+            Assertions.assertEquals(EncodingUtils.isAsciiText(cell), classifier.isAscii(), cell);
+            BigDecimal expect;
+            try {
+                expect = new BigDecimal(cell);
+            } catch (NumberFormatException e) {
+                expect = null;
+            }
+            Assertions.assertEquals(expect, classifier.getNumber(), cell);
+            if (expect != null) {
+                var p = NumericUtils.detectPrecision(cell);
+                Assertions.assertEquals(p.getFirst(), classifier.getPrecision(), cell);
+                Assertions.assertEquals(p.getSecond(), classifier.getScale(), cell);
+            }
+            Assertions.assertEquals(DateTimeTypeUtils.stringToTemporalOrNull(cell), classifier.getTemporal(), cell);
+        }
+    }
+
+    @Test
+    void testBlankCell() {
+        var classifier = new CellClassifier().classify(" ");
+        Assertions.assertEquals(0L, classifier.getTypeMask());
+        Assertions.assertFalse(classifier.isEmpty());
+        Assertions.assertTrue(new CellClassifier().classify("").isEmpty());
+    }
+}
@@ -6,6 +6,7 @@
 
 package com.hagoapp.f2t.util;
 
+import com.hagoapp.f2t.FileColumnDefinition;
 import com.hagoapp.f2t.Quartet;
 import kotlin.Pair;
 import org.junit.jupiter.api.Assertions;
@@ -16,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Set;
 
 class DateTimeUtilsTest {
 
@@ -31,7 +33,15 @@ class DateTimeUtilsTest {
             new Quartet<>("23:12:24", false, false, true),
             new Quartet<>("2021-04-01 23:12:24", true, false, false),
             new Quartet<>("2021-04-01T23:12:24+08", true, false, false),
-            new Quartet<>("2021-04-01T23:12:24Z", true, false, false)
+            new Quartet<>("2021-04-01T23:12:24Z", true, false, false),
+            new Quartet<>("Tue, 3 Jun 2008 11:05:30 GMT", true, false, false),
+            new Quartet<>("20210401", false, true, false),
+            new Quartet<>("2012-W48-6", false, true, false),
+            new Quartet<>("2012-337", false, true, false),
+            new Quartet<>("9:5:3", false, false, true),
+            new Quartet<>("天魁星", false, false, false),
+            new Quartet<>("Room 12:30, floor 123456789", false, false, false),
+            new Quartet<>("61447832", false, false, false)
     );
 
     @Test
@@ -78,4 +88,23 @@ class DateTimeUtilsTest {
             Assertions.assertTrue(expect.isEqual(dt));
         }
     }
+
+    @Test
+    void testPinnedFormatter() {
+        var column = new FileColumnDefinition("dt");
+        for (var x : valueCases) {
+            var parsed = DateTimeTypeUtils.parseTemporal(x.getFirst());
+            Assertions.assertNotNull(parsed);
+            Assertions.assertTrue(x.getSecond().isEqual((ZonedDateTime) parsed.getFirst()));
+            column.learnTemporalFormatter(parsed.getSecond());
+        }
+        // values in different shapes are not parsed by a single formatter, nothing pinned
+        Assertions.assertNull(column.getTemporalFormatter());
+        var formatter = DateTimeTypeUtils.parseTemporal("2021-04-01 23:12:24").getSecond();
+        column.setTemporalFormatter(formatter);
+        column.learnTemporalFormatter(DateTimeTypeUtils.parseTemporal("2022-05-06 01:02:03").getSecond());
+        Assertions.assertSame(formatter, column.getTemporalFormatter());
+        var dt = DateTimeTypeUtils.stringToDateTimeOrNull("2021-04-01T23:12:24Z", formatter, Set.of());
+        Assertions.assertNotNull(dt);
+    }
 }
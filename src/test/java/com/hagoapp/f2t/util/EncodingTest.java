@@ -62,4 +62,41 @@ class EncodingTest {
             Assertions.assertEquals(expected.name(), enc);
         }
     }
+
+    @Test
+    void testDetectEncodingWithBudget() throws IOException {
+        var files = Map.of(
+                "tests/csv/shuihudata.csv", StandardCharsets.UTF_8.name(),
+                "tests/csv/shuihudata_bom_utf8.csv", StandardCharsets.UTF_8.name(),
+                "tests/csv/shuihudata_bom_utf16.csv", "UTF-16LE"
+        );
+        for (var item : files.entrySet()) {
+            try (var fis = new FileInputStream(item.getKey())) {
+                var detected = EncodingUtils.detectEncoding(fis, 1024);
+                Assertions.assertEquals(item.getValue(), detected.getEncoding());
+                Assertions.assertEquals(1024, detected.getPrefix().length);
+                var content = detected.replay(fis).readAllBytes();
+                var file = new File(item.getKey());
+                Assertions.assertEquals(file.length() - detected.getBomSize(), content.length);
+            }
+        }
+    }
+
+    @Test
+    void testDetectAsciiEncoding() {
+        var detected = EncodingUtils.detectEncoding(new ByteArrayInputStream("a,b\n1,2".getBytes()));
+        Assertions.assertEquals(StandardCharsets.UTF_8.name(), detected.getEncoding());
+        Assertions.assertTrue(detected.isComplete());
+        Assertions.assertEquals(0, detected.getBomSize());
+    }
+
+    @Test
+    void testDetectUtf16WithoutBom() {
+        var text = "a,b\n1,2\n3,4\n";
+        for (var charset : new Charset[]{StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE}) {
+            var detected = EncodingUtils.detectEncoding(new ByteArrayInputStream(text.getBytes(charset)));
+            Assertions.assertEquals(charset.name(), detected.getEncoding());
+            Assertions.assertEquals(0, detected.getBomSize());
+        }
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.JDBCType;
+import java.util.List;
+import java.util.Set;
+
+import static java.sql.JDBCType.*;
+
+class JDBCTypeMaskTest {
+
+    private final List<Set<JDBCType>> cases = List.of(
+            Set.of(),
+            Set.of(NCLOB),
+            Set.of(INTEGER, BIGINT, DECIMAL),
+            Set.of(VARCHAR, TIMESTAMP_WITH_TIMEZONE, DATE)
+    );
+
+    @Test
+    void testCombineSameAsSets() {
+        for (var a : cases) {
+            for (var b : cases) {
+                var expect = JDBCTypeUtils.Companion.combinePossibleTypes(a, b);
+                var mask = JDBCTypeMask.combine(JDBCTypeMask.fromSet(a), JDBCTypeMask.fromSet(b));
+                Assertions.assertEquals(expect, JDBCTypeMask.toSet(mask));
+            }
+        }
+    }
+
+    @Test
+    void testGuessTypeMask() {
+        Assertions.assertEquals(Set.of(NCLOB, NVARCHAR, NCHAR), JDBCTypeMask.toSet(JDBCTypeUtils.guessTypeMask("测试")));
+        Assertions.assertTrue(JDBCTypeMask.contains(JDBCTypeUtils.guessTypeMask("2021-04-01"), DATE));
+        var mask = JDBCTypeUtils.guessTypeMask("100");
+        Assertions.assertTrue(JDBCTypeMask.contains(mask, TINYINT));
+        Assertions.assertFalse(JDBCTypeMask.contains(mask, BOOLEAN));
+    }
+}
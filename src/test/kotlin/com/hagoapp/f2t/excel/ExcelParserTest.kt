@@ -8,10 +8,14 @@ package com.hagoapp.f2t.excel
 
 import com.google.gson.Gson
 import com.hagoapp.f2t.datafile.excel.ExcelDataFileParser
+import org.apache.poi.hssf.usermodel.HSSFWorkbook
+import org.apache.poi.ss.usermodel.Workbook
+import org.apache.poi.xssf.usermodel.XSSFWorkbook
 import org.junit.jupiter.api.Assertions
 import org.junit.jupiter.api.Test
 import java.io.File
 import java.io.FileInputStream
+import java.io.FileOutputStream
 
 class ExcelParserTest {
 
@@ -71,4 +75,56 @@ class ExcelParserTest {
             Assertions.assertTrue(info.sheets[2].columns.isEmpty())
         }
     }
+
+    @Test
+    fun testHeaderOfLateSharedStrings() {
+        val file = File.createTempFile("late_shared_strings", ".xlsx")
+        try {
+            XSSFWorkbook().use { wb ->
+                val sheet = wb.createSheet("data")
+                // body strings are added to shared strings table before header strings
+                for (i in 1..1000) {
+                    val row = sheet.createRow(i)
+                    row.createCell(0).setCellValue("value$i")
+                    row.createCell(1).setCellValue("other$i")
+                }
+                val header = sheet.createRow(0)
+                header.createCell(0).setCellValue("name")
+                header.createCell(1).setCellValue("value1000")
+                FileOutputStream(file).use { wb.write(it) }
+            }
+            val info = ExcelDataFileParser(file.absolutePath).excelInfo()
+            Assertions.assertEquals(listOf("name", "value1000"), info.sheets[0].columns)
+            Assertions.assertEquals(1001, info.sheets[0].rowCount)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun testHeaderWithMissingCells() {
+        val creators = listOf<Pair<String, () -> Workbook>>(".xlsx" to { XSSFWorkbook() }, ".xls" to { HSSFWorkbook() })
+        for ((suffix, create) in creators) {
+            val file = File.createTempFile("header_gap", suffix)
+            try {
+                create().use { wb ->
+                    val sheet = wb.createSheet("data")
+                    val header = sheet.createRow(0)
+                    header.createCell(0).setCellValue("a")
+                    header.createCell(2).setCellValue("c")
+                    for (i in 1..10) {
+                        val row = sheet.createRow(i)
+                        row.createCell(0).setCellValue(i.toDouble())
+                        row.createCell(2).setCellValue("c$i")
+                    }
+                    FileOutputStream(file).use { wb.write(it) }
+                }
+                val info = ExcelDataFileParser(file.absolutePath).excelInfo()
+                Assertions.assertEquals(listOf("a", "c"), info.sheets[0].columns)
+                Assertions.assertEquals(11, info.sheets[0].rowCount)
+            } finally {
+                file.delete()
+            }
+        }
+    }
 }
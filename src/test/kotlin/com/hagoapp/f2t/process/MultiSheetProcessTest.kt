@@ -0,0 +1,115 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.hagoapp.f2t.process
+
+import com.hagoapp.f2t.F2TConfig
+import com.hagoapp.f2t.F2TException
+import com.hagoapp.f2t.MultiSheetF2TProcess
+import com.hagoapp.f2t.database.config.SqliteConfig
+import com.hagoapp.f2t.datafile.excel.FileInfoExcel
+import com.hagoapp.f2t.datafile.excel.FileInfoExcelX
+import com.hagoapp.f2t.datafile.excel.XlsxWorkbook
+import org.apache.poi.hssf.usermodel.HSSFWorkbook
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import java.io.File
+import java.io.FileOutputStream
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.SQLException
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.function.Supplier
+
+class MultiSheetProcessTest {
+
+    private val excel = "tests/excel/empty.xlsx"
+
+    @Test
+    fun testRollUpFailures() {
+        val sheets = XlsxWorkbook(excel).use { wb -> wb.sheets.map { it.name } }
+        val configs = (sheets + "no such sheet").associateWith { sheet ->
+            val config = F2TConfig()
+            config.targetTable = sheet
+            config
+        }
+        val info = FileInfoExcelX()
+        info.filename = excel
+        val process = MultiSheetF2TProcess(info, configs, Supplier<Connection> { throw F2TException("no database") }, 2)
+        process.run()
+        val result = process.result
+        Assertions.assertEquals(configs.keys.toList(), result.results.keys.toList())
+        Assertions.assertFalse(result.succeeded())
+        Assertions.assertEquals(configs.size, result.errors.size)
+        Assertions.assertTrue(sheets.all { result.results.getValue(it).errors[0].message == "no database" })
+    }
+
+    @Test
+    fun testImportXlsSheets() {
+        val file = File.createTempFile("multi_sheet", ".xls")
+        val dbFiles = ConcurrentLinkedQueue<File>()
+        try {
+            val rowCounts = mapOf("alpha" to 3000, "beta" to 5000, "gamma" to 2000)
+            HSSFWorkbook().use { wb ->
+                rowCounts.forEach { (name, count) ->
+                    val sheet = wb.createSheet(name)
+                    val header = sheet.createRow(0)
+                    header.createCell(0).setCellValue("id")
+                    header.createCell(1).setCellValue("name")
+                    for (i in 1..count) {
+                        val row = sheet.createRow(i)
+                        row.createCell(0).setCellValue(i.toDouble())
+                        row.createCell(1).setCellValue("$name$i")
+                    }
+                }
+                FileOutputStream(file).use { wb.write(it) }
+            }
+            val configs = rowCounts.keys.associateWith { sheet ->
+                val config = F2TConfig()
+                config.targetTable = sheet
+                config.isCreateTableIfNeeded = true
+                config
+            }
+            val info = FileInfoExcel()
+            info.filename = file.absolutePath
+            // every worker imports into its own database, so that writes of workers never lock each other
+            val supplier = Supplier<Connection> {
+                val db = SqliteConfig()
+                db.databaseName = File.createTempFile("multi_sheet", ".db").also { dbFiles.add(it) }.absolutePath
+                db.createConnection()
+            }
+            val process = MultiSheetF2TProcess(info, configs, supplier, 3)
+            process.run()
+            val result = process.result
+            Assertions.assertTrue(result.succeeded(), result.toString())
+            rowCounts.forEach { (sheet, count) ->
+                Assertions.assertEquals(count, result.results.getValue(sheet).rowCount)
+            }
+            val imported = mutableMapOf<String, Pair<Int, Int>>()
+            for (dbFile in dbFiles) {
+                DriverManager.getConnection("jdbc:sqlite:${dbFile.absolutePath}").use { con ->
+                    rowCounts.keys.forEach { sheet ->
+                        val sql = "select count(*), sum(case when name like '$sheet%' then 1 else 0 end) from $sheet"
+                        try {
+                            con.createStatement().use { st ->
+                                st.executeQuery(sql).use { rs ->
+                                    rs.next()
+                                    imported[sheet] = Pair(rs.getInt(1), rs.getInt(2))
+                                }
+                            }
+                        } catch (e: SQLException) {
+                            // table of sheet imported by another worker
+                        }
+                    }
+                }
+            }
+            Assertions.assertEquals(rowCounts.mapValues { Pair(it.value, it.value) }, imported)
+        } finally {
+            file.delete()
+            dbFiles.forEach { it.delete() }
+        }
+    }
+}